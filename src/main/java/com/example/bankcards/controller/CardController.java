@@ -1,10 +1,15 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.request.TotalMode;
+import com.example.bankcards.dto.request.card.BatchNewCardRequestDTO;
+import com.example.bankcards.dto.request.card.BatchTransferRequestDTO;
 import com.example.bankcards.dto.request.card.CardRequestDTO;
+import com.example.bankcards.dto.request.card.CardStripesRequestDTO;
 import com.example.bankcards.dto.request.card.NewCardRequestDTO;
 import com.example.bankcards.dto.request.card.TransferRequestDTO;
 import com.example.bankcards.dto.response.PagedResponseDTO;
 import com.example.bankcards.dto.response.card.BalanceResponseDTO;
+import com.example.bankcards.dto.response.card.BatchTransferResponseDTO;
 import com.example.bankcards.dto.response.card.CardResponseDTO;
 import com.example.bankcards.dto.response.MessageResponseDTO;
 import com.example.bankcards.entity.User;
@@ -12,15 +17,18 @@ import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.security.CurrentUserProvider;
 import com.example.bankcards.service.CardApiService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -30,6 +38,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Контроллер, отвечающий за операции с банковскими картами.
@@ -53,7 +62,9 @@ public class CardController {
      * Возвращает список карт текущего пользователя с поддержкой фильтрации и пагинации.
      *
      * @param page           номер страницы (0 по умолчанию)
-     * @param size           размер страницы (100 по умолчанию)
+     * @param size           размер страницы (100 по умолчанию, не более 1000)
+     * @param cursor         курсор следующей страницы; пустое значение запрашивает первую страницу выборки по курсору
+     * @param total          режим вычисления общего количества: EXACT, NONE или ESTIMATE (EXACT по умолчанию)
      * @param expiryDateFrom фильтр по дате окончания действия (от)
      * @param expiryDateTo   фильтр по дате окончания действия (до)
      * @param status         фильтр по статусу карты
@@ -77,7 +88,9 @@ public class CardController {
             })
     public ResponseEntity<PagedResponseDTO<CardResponseDTO>> getMyCards(
             @RequestParam(required = false, defaultValue = "0") @Min(0) Integer page,
-            @RequestParam(required = false, defaultValue = "100") @Min(1) Integer size,
+            @RequestParam(required = false, defaultValue = "100") @Min(1) @Max(1000) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "EXACT") TotalMode total,
             @RequestParam(required = false) LocalDate expiryDateFrom,
             @RequestParam(required = false) LocalDate expiryDateTo,
             @RequestParam(required = false) CardStatus status,
@@ -88,7 +101,7 @@ public class CardController {
         User currentUser = currentUserProvider.get();
         log.info("Получение карт пользователя id={}", currentUser.getId());
         PagedResponseDTO<CardResponseDTO> responseDTO =
-                cardApiService.getMyCards(currentUser, page, size, expiryDateFrom, expiryDateTo, status, balanceFrom, balanceTo, isRequestBlock);
+                cardApiService.getMyCards(currentUser, page, size, cursor, total, expiryDateFrom, expiryDateTo, status, balanceFrom, balanceTo, isRequestBlock);
         log.info("Найдено {} карт для пользователя id={}", responseDTO.content().size(), currentUser.getId());
 
         return ResponseEntity.ok(responseDTO);
@@ -128,13 +141,15 @@ public class CardController {
      * Выполняет перевод средств между картами текущего пользователя.
      *
      * @param transferRequestDTO DTO с данными перевода
+     * @param idempotencyKey     ключ идемпотентности для безопасного повтора запроса (необязательный)
      * @return сообщение об успешном выполнении операции
      */
     @PostMapping("/transfer")
     @PreAuthorize("hasRole('USER')")
     @Operation(
             summary = "Перевод средств между картами пользователя",
-            description = "Позволяет перевести средства между картами пользователя",
+            description = "Позволяет перевести средства между картами пользователя. "
+                    + "Повторный запрос с тем же заголовком Idempotency-Key возвращает результат первого запроса без повторного перевода",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Перевод выполнен успешно",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = BalanceResponseDTO.class))),
@@ -144,16 +159,47 @@ public class CardController {
                             content = @Content(mediaType = "application/json"))
             })
     public ResponseEntity<MessageResponseDTO> transfer(
-            @RequestBody @Valid TransferRequestDTO transferRequestDTO
+            @RequestBody @Valid TransferRequestDTO transferRequestDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) @Size(min = 1, max = 255) String idempotencyKey
     ) {
         User currentUser = currentUserProvider.get();
         log.info("Перевод средств пользователем id={} с карты {} на карту {}", currentUser.getId(), transferRequestDTO.cardIdFrom(), transferRequestDTO.cardIdTo());
-        MessageResponseDTO messageResponseDTO = cardApiService.transfer(currentUser, transferRequestDTO);
+        MessageResponseDTO messageResponseDTO = cardApiService.transfer(currentUser, transferRequestDTO, idempotencyKey);
         log.info("Перевод средств пользователем id={} выполнен успешно", currentUser.getId());
 
         return ResponseEntity.ok(messageResponseDTO);
     }
 
+    /**
+     * Выполняет пакет переводов между картами текущего пользователя в одной транзакции.
+     *
+     * @param batchTransferRequestDTO DTO с переводами пакета и режимом выполнения
+     * @return {@link BatchTransferResponseDTO} результаты выполнения каждого перевода
+     */
+    @PostMapping("/transfer/batch")
+    @PreAuthorize("hasRole('USER')")
+    @Operation(
+            summary = "Пакетный перевод средств между картами пользователя",
+            description = "Позволяет выполнить несколько переводов между картами пользователя за один запрос",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Пакет переводов обработан",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchTransferResponseDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Ошибка валидации или перевод пакета не может быть выполнен",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера",
+                            content = @Content(mediaType = "application/json"))
+            })
+    public ResponseEntity<BatchTransferResponseDTO> transferBatch(
+            @RequestBody @Valid BatchTransferRequestDTO batchTransferRequestDTO
+    ) {
+        User currentUser = currentUserProvider.get();
+        log.info("Пакетный перевод средств пользователем id={}, количество переводов {}", currentUser.getId(), batchTransferRequestDTO.transfers().size());
+        BatchTransferResponseDTO responseDTO = cardApiService.transferBatch(currentUser, batchTransferRequestDTO);
+        log.info("Пакетный перевод пользователем id={} обработан: выполнено {}, отклонено {}", currentUser.getId(), responseDTO.succeeded(), responseDTO.failed());
+
+        return ResponseEntity.ok(responseDTO);
+    }
+
     /**
      * Создаёт запрос на блокировку карты пользователя.
      *
@@ -190,7 +236,9 @@ public class CardController {
      * Возвращает список всех карт (только для администратора) с поддержкой фильтрации и пагинации.
      *
      * @param page           номер страницы (0 по умолчанию)
-     * @param size           размер страницы (100 по умолчанию)
+     * @param size           размер страницы (100 по умолчанию, не более 1000)
+     * @param cursor         курсор следующей страницы; пустое значение запрашивает первую страницу выборки по курсору
+     * @param total          режим вычисления общего количества: EXACT, NONE или ESTIMATE (EXACT по умолчанию)
      * @param expiryDateFrom фильтр по дате окончания действия (от)
      * @param expiryDateTo   фильтр по дате окончания действия (до)
      * @param status         фильтр по статусу карты
@@ -214,7 +262,9 @@ public class CardController {
             })
     public ResponseEntity<PagedResponseDTO<CardResponseDTO>> getAllCards(
             @RequestParam(required = false, defaultValue = "0") @Min(0) Integer page,
-            @RequestParam(required = false, defaultValue = "100") @Min(1) Integer size,
+            @RequestParam(required = false, defaultValue = "100") @Min(1) @Max(1000) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "EXACT") TotalMode total,
             @RequestParam(required = false) String userLogin,
             @RequestParam(required = false) LocalDate expiryDateFrom,
             @RequestParam(required = false) LocalDate expiryDateTo,
@@ -225,7 +275,7 @@ public class CardController {
     ) {
         log.info("Админ запрашивает список всех карт");
         PagedResponseDTO<CardResponseDTO> responseDTO =
-                cardApiService.getAllCards(page, size, userLogin, expiryDateFrom, expiryDateTo, status, balanceFrom, balanceTo, isRequestBlock);
+                cardApiService.getAllCards(page, size, cursor, total, userLogin, expiryDateFrom, expiryDateTo, status, balanceFrom, balanceTo, isRequestBlock);
         log.info("Админ получил {} карт", responseDTO.content().size());
 
         return ResponseEntity.ok(responseDTO);
@@ -260,6 +310,37 @@ public class CardController {
         return ResponseEntity.ok(cardResponseDTO);
     }
 
+    /**
+     * Создаёт пакет карт для нескольких пользователей.
+     *
+     * @param batchNewCardRequestDTO DTO с владельцами и количеством карт для каждого
+     * @return список созданных карт
+     */
+    @PostMapping("/create/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+            summary = "Пакетное создание карт",
+            description = "Позволяет админу создать несколько карт для нескольких пользователей за один запрос",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Карты успешно созданы",
+                            content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = CardResponseDTO.class)))),
+                    @ApiResponse(responseCode = "400", description = "Ошибка валидации",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "404", description = "Пользователь не найден",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера",
+                            content = @Content(mediaType = "application/json"))
+            })
+    public ResponseEntity<List<CardResponseDTO>> createNewCards(
+            @RequestBody @Valid BatchNewCardRequestDTO batchNewCardRequestDTO
+    ) {
+        log.info("Админ создает пакет карт для {} пользователей", batchNewCardRequestDTO.owners().size());
+        List<CardResponseDTO> responseDTO = cardApiService.createNewCards(batchNewCardRequestDTO);
+        log.info("Пакет из {} карт успешно создан", responseDTO.size());
+
+        return ResponseEntity.ok(responseDTO);
+    }
+
     /**
      * Блокирует карту.
      *
@@ -289,6 +370,35 @@ public class CardController {
         return ResponseEntity.ok(messageResponseDTO);
     }
 
+    /**
+     * Изменяет количество полос баланса карты.
+     *
+     * @param cardStripesRequestDTO DTO с идентификатором карты и количеством полос
+     * @return сообщение об успешном изменении
+     */
+    @PatchMapping("/stripes")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+            summary = "Изменение количества полос баланса карты",
+            description = "Позволяет админу разделить баланс карты с частыми зачислениями на несколько полос или отключить полосы",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Количество полос успешно изменено",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = MessageResponseDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Ошибка валидации",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера",
+                            content = @Content(mediaType = "application/json"))
+            })
+    public ResponseEntity<MessageResponseDTO> setBalanceStripes(
+            @RequestBody @Valid CardStripesRequestDTO cardStripesRequestDTO
+    ) {
+        log.info("Админ изменяет количество полос баланса карты id={}", cardStripesRequestDTO.cardId());
+        MessageResponseDTO messageResponseDTO = cardApiService.setBalanceStripes(cardStripesRequestDTO);
+        log.info("Количество полос баланса карты id={} успешно изменено", cardStripesRequestDTO.cardId());
+
+        return ResponseEntity.ok(messageResponseDTO);
+    }
+
     /**
      * Активирует карту.
      *
@@ -0,0 +1,59 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.response.job.JobReportResponseDTO;
+import com.example.bankcards.service.SchedulerLeaseService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Контроллер для просмотра состояния плановых задач.
+ * Доступ к методам контроллера имеют только пользователи с ролью {@code ADMIN}.
+ */
+@RestController
+@RequestMapping("/api/v1/jobs")
+@Tag(name = "Job", description = "API для просмотра плановых задач")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@Slf4j
+public class JobController {
+
+    private final SchedulerLeaseService schedulerLeaseService;
+
+    /**
+     * Возвращает отчет о последних запусках плановых задач.
+     *
+     * @return список {@link JobReportResponseDTO}
+     */
+    @GetMapping
+    @Operation(
+            summary = "Отчет о плановых задачах",
+            description = "Позволяет получить владельца аренды, время последнего запуска, длительность " +
+                    "и количество обработанных строк для каждой плановой задачи",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Отчет успешно получен",
+                            content = @Content(mediaType = "application/json",
+                                    array = @ArraySchema(schema = @Schema(implementation = JobReportResponseDTO.class)))),
+                    @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера",
+                            content = @Content(mediaType = "application/json"))
+            })
+    public ResponseEntity<List<JobReportResponseDTO>> getReport() {
+        log.info("Получение отчета о плановых задачах");
+        List<JobReportResponseDTO> report = schedulerLeaseService.getReport();
+        log.info("Отчет о плановых задачах получен, задач {}", report.size());
+
+        return ResponseEntity.ok(report);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.request.TotalMode;
 import com.example.bankcards.dto.response.MessageResponseDTO;
 import com.example.bankcards.dto.response.PagedResponseDTO;
 import com.example.bankcards.dto.response.user.UserResponseDTO;
@@ -9,6 +10,7 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -99,7 +101,8 @@ public class UserController {
      * Возвращает список пользователей с возможностью фильтрации и пагинации.
      *
      * @param page           номер страницы (0 по умолчанию)
-     * @param size           размер страницы (100 по умолчанию)
+     * @param size           размер страницы (100 по умолчанию, не более 1000)
+     * @param total          режим вычисления общего количества: EXACT, NONE или ESTIMATE (EXACT по умолчанию)
      * @param login          фильтр по логину
      * @param createdAtFrom  дата создания от
      * @param createdAtTo    дата создания до
@@ -119,13 +122,14 @@ public class UserController {
             })
     public ResponseEntity<PagedResponseDTO<UserResponseDTO>> getAllUsers(
             @RequestParam(required = false, defaultValue = "0") @Min(0) Integer page,
-            @RequestParam(required = false, defaultValue = "100") @Min(1) Integer size,
+            @RequestParam(required = false, defaultValue = "100") @Min(1) @Max(1000) Integer size,
+            @RequestParam(required = false, defaultValue = "EXACT") TotalMode total,
             @RequestParam(required = false) String login,
             @RequestParam(required = false) LocalDate createdAtFrom,
             @RequestParam(required = false) LocalDate createdAtTo
             ) {
         log.info("Получение списка пользователей");
-        PagedResponseDTO<UserResponseDTO> responseDTO = userApiService.findAllUsers(page, size, login, createdAtFrom, createdAtTo);
+        PagedResponseDTO<UserResponseDTO> responseDTO = userApiService.findAllUsers(page, size, total, login, createdAtFrom, createdAtTo);
         log.info("Найдено {} пользователей", responseDTO.content().size());
 
         return ResponseEntity.ok(responseDTO);
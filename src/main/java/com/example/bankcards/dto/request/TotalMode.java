@@ -0,0 +1,23 @@
+package com.example.bankcards.dto.request;
+
+/**
+ * Режим вычисления общего количества элементов при постраничной выборке.
+ */
+public enum TotalMode {
+
+    /**
+     * Точное количество, вычисляемое отдельным запросом {@code COUNT(*)}.
+     */
+    EXACT,
+
+    /**
+     * Количество не вычисляется, в ответе возвращается только признак следующей страницы.
+     */
+    NONE,
+
+    /**
+     * Оценка количества строк по статистике планировщика PostgreSQL.
+     * Применяется только к выборкам без фильтров, для выборок с фильтрами вычисляется точное количество.
+     */
+    ESTIMATE
+}
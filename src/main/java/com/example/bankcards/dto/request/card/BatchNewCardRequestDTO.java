@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.request.card;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchNewCardRequestDTO(
+        @NotEmpty(message = "Список владельцев карт не может быть пустым")
+        @Size(max = 100, message = "Максимальное количество владельцев в пакете — 100")
+        List<@NotNull(message = "Владелец карт не может быть пустым") @Valid OwnerCardsRequestDTO> owners
+) {
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.dto.request.card;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchTransferRequestDTO(
+        @NotEmpty(message = "Список переводов не может быть пустым")
+        @Size(max = 1000, message = "Максимальное количество переводов в пакете — 1000")
+        List<@NotNull(message = "Перевод не может быть пустым") @Valid TransferRequestDTO> transfers,
+        boolean allOrNothing
+) {
+}
@@ -0,0 +1,17 @@
+package com.example.bankcards.dto.request.card;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public record CardStripesRequestDTO(
+        @NotNull(message = "id карты не может быть пустым")
+        @Positive(message = "id карты должен быть положительным")
+        Long cardId,
+        @NotNull(message = "Количество полос не может быть пустым")
+        @Min(value = 0, message = "Количество полос не может быть отрицательным")
+        @Max(value = 64, message = "Количество полос не может быть больше 64")
+        Integer stripes
+) {
+}
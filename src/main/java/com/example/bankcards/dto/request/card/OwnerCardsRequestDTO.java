@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.request.card;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public record OwnerCardsRequestDTO(
+        @NotNull(message = "id пользователя не может быть пустым")
+        @Positive(message = "id пользователя должен быть положительным")
+        Long ownerId,
+        @Positive(message = "Количество карт должно быть положительным")
+        @Max(value = 100, message = "Максимальное количество карт для одного владельца — 100")
+        int count
+) {
+}
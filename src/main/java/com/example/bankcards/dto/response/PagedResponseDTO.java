@@ -2,10 +2,23 @@ package com.example.bankcards.dto.response;
 
 import java.util.List;
 
+/**
+ * Страница результатов.
+ * {@code totalElements} равен {@code null}, если общее количество не вычислялось,
+ * а {@code hasNext} показывает, есть ли следующая страница.
+ * При постраничной выборке по курсору {@code nextCursor} содержит курсор следующей страницы
+ * или {@code null}, если страница последняя.
+ */
 public record PagedResponseDTO<T>(
         List<T> content,
         int page,
         int size,
-        long totalElements
+        Long totalElements,
+        boolean hasNext,
+        String nextCursor
 ) {
+
+    public PagedResponseDTO(List<T> content, int page, int size, long totalElements) {
+        this(content, page, size, totalElements, (long) (page + 1) * size < totalElements, null);
+    }
 }
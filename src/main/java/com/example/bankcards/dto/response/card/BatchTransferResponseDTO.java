@@ -0,0 +1,10 @@
+package com.example.bankcards.dto.response.card;
+
+import java.util.List;
+
+public record BatchTransferResponseDTO(
+        int succeeded,
+        int failed,
+        List<TransferResultDTO> results
+) {
+}
@@ -0,0 +1,13 @@
+package com.example.bankcards.dto.response.card;
+
+import java.math.BigDecimal;
+
+public record TransferResultDTO(
+        int index,
+        Long cardIdFrom,
+        Long cardIdTo,
+        BigDecimal amount,
+        boolean success,
+        String message
+) {
+}
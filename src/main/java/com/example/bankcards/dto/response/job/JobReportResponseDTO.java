@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.response.job;
+
+import java.time.Instant;
+
+public record JobReportResponseDTO(
+        String jobName,
+        String owner,
+        Instant lockedUntil,
+        Instant lastStartedAt,
+        Instant lastFinishedAt,
+        Long lastDurationMs,
+        Long lastRows,
+        Long checkpointId
+) {
+}
@@ -1,6 +1,8 @@
 package com.example.bankcards.entity;
 
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.listener.CardNumberHashListener;
+import com.example.bankcards.util.CardUtil;
 import com.example.bankcards.util.EncryptionConverter;
 import jakarta.persistence.*;
 import lombok.*;
@@ -10,6 +12,7 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "cards")
+@EntityListeners(CardNumberHashListener.class)
 @Getter
 @Setter
 @AllArgsConstructor
@@ -18,11 +21,16 @@ import java.util.Objects;
 public class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_seq")
+    @SequenceGenerator(name = "cards_seq", sequenceName = "cards_seq", allocationSize = 50)
     private Long id;
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     @Convert(converter = EncryptionConverter.class)
     private String cardNumber;
+    @Column(name = "card_number_hash", length = 64, unique = true)
+    private String cardNumberHash;
+    @Column(name = "card_last4", length = 4)
+    private String cardLast4;
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(nullable = false)
     private User owner;
@@ -36,6 +44,11 @@ public class Card {
     @Column(nullable = false)
     private boolean isRequestBlock = false;
 
+    @PrePersist
+    private void fillCardLast4() {
+        cardLast4 = CardUtil.lastDigits(cardNumber);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof Card card)) return false;
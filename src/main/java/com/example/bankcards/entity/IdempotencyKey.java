@@ -0,0 +1,54 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+import java.util.Objects;
+
+@Entity
+@Table(name = "idempotency_keys")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class IdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false, updatable = false)
+    private Long userId;
+    @Column(nullable = false, updatable = false)
+    private String idempotencyKey;
+    @Column(nullable = false, updatable = false)
+    private String requestHash;
+    @Column(nullable = false, updatable = false)
+    private String responseMessage;
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof IdempotencyKey that)) return false;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "IdempotencyKey{" +
+                "id=" + id +
+                ", userId=" + userId +
+                ", idempotencyKey='" + idempotencyKey + '\'' +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
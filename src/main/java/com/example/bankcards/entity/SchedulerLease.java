@@ -0,0 +1,51 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.Objects;
+
+@Entity
+@Table(name = "scheduler_leases")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SchedulerLease {
+
+    @Id
+    @Column(length = 100)
+    private String jobName;
+    private String owner;
+    @Column(nullable = false)
+    private Instant lockedUntil;
+    private Instant lastStartedAt;
+    private Instant lastFinishedAt;
+    private Long lastDurationMs;
+    private Long lastRows;
+    private Long checkpointId;
+    @Column(length = 100)
+    private String checkpointRun;
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof SchedulerLease that)) return false;
+        return Objects.equals(jobName, that.jobName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(jobName);
+    }
+
+    @Override
+    public String toString() {
+        return "SchedulerLease{" +
+                "jobName='" + jobName + '\'' +
+                ", owner='" + owner + '\'' +
+                ", lockedUntil=" + lockedUntil +
+                '}';
+    }
+}
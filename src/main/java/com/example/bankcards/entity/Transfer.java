@@ -0,0 +1,56 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+
+@Entity
+@Table(name = "transfers")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class Transfer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false, updatable = false)
+    private Long cardFromId;
+    @Column(nullable = false, updatable = false)
+    private Long cardToId;
+    @Column(nullable = false, updatable = false)
+    private BigDecimal amount;
+    @CreationTimestamp
+    @Column(updatable = false)
+    private OffsetDateTime createdAt;
+    @Column(nullable = false)
+    private boolean settled;
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Transfer transfer)) return false;
+        return Objects.equals(id, transfer.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "Transfer{" +
+                "id=" + id +
+                ", cardFromId=" + cardFromId +
+                ", cardToId=" + cardToId +
+                ", amount=" + amount +
+                ", settled=" + settled +
+                '}';
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.bankcards.entity.listener;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.util.BlindIndexer;
+import jakarta.persistence.PrePersist;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Слушатель сущности {@link Card}, вычисляющий слепой индекс номера карты перед сохранением.
+ */
+@Component
+@RequiredArgsConstructor
+public class CardNumberHashListener {
+
+    private final BlindIndexer blindIndexer;
+
+    @PrePersist
+    public void fillCardNumberHash(Card card) {
+        card.setCardNumberHash(blindIndexer.hash(card.getCardNumber()));
+    }
+}
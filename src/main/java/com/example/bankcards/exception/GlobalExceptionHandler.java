@@ -8,6 +8,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @ControllerAdvice
@@ -66,6 +67,13 @@ public class GlobalExceptionHandler {
                 .body(new ExceptionResponseDTO(HttpStatus.NOT_FOUND, ex.getMessage()));
     }
 
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ExceptionResponseDTO> handleRejectedExecutionException(RejectedExecutionException ex) {
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new ExceptionResponseDTO(HttpStatus.SERVICE_UNAVAILABLE, "Сервис перегружен, повторите запрос позже"));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ExceptionResponseDTO> handleGenericException(Exception ex) {
 
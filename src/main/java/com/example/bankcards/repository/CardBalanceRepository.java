@@ -1,7 +1,106 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.CardBalance;
+import com.example.bankcards.entity.enums.CardStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface CardBalanceRepository extends JpaRepository<CardBalance, Long> {
+
+    @Query(value = "SELECT set_config('lock_timeout', :timeout, true)", nativeQuery = true)
+    String setLockTimeout(@Param("timeout") String timeout);
+
+    @Query(value = """
+            SELECT b.card_id FROM card_balances b
+            JOIN cards c ON c.id = b.card_id
+            WHERE b.card_id IN (:cardIds) AND c.owner_id = :ownerId
+            ORDER BY b.card_id
+            FOR UPDATE OF b
+            """, nativeQuery = true)
+    List<Long> lockAllInOrder(@Param("cardIds") Collection<Long> cardIds, @Param("ownerId") Long ownerId);
+
+    @Query(value = """
+            SELECT b.balance
+                   + COALESCE((SELECT SUM(t.amount) FROM transfers t
+                               WHERE t.card_to_id = b.card_id AND NOT t.settled), 0)
+                   + COALESCE((SELECT SUM(s.balance) FROM card_balance_stripes s
+                               WHERE s.card_id = b.card_id), 0)
+            FROM card_balances b
+            WHERE b.card_id = :cardId
+            """, nativeQuery = true)
+    Optional<BigDecimal> findAvailableBalance(@Param("cardId") Long cardId);
+
+    @Modifying
+    @Query(value = """
+            UPDATE card_balances b SET balance = b.balance - :amount
+            WHERE b.card_id = :cardId
+              AND b.balance
+                  + COALESCE((SELECT SUM(t.amount) FROM transfers t
+                              WHERE t.card_to_id = b.card_id AND NOT t.settled), 0)
+                  + COALESCE((SELECT SUM(s.balance) FROM card_balance_stripes s
+                              WHERE s.card_id = b.card_id), 0) >= :amount
+              AND EXISTS (SELECT 1 FROM cards c
+                          WHERE c.id = b.card_id AND c.owner_id = :ownerId AND c.card_status = :#{#status.name()})
+            """, nativeQuery = true)
+    int debit(@Param("cardId") Long cardId, @Param("ownerId") Long ownerId,
+              @Param("amount") BigDecimal amount, @Param("status") CardStatus status);
+
+    @Modifying
+    @Query(value = """
+            WITH picked AS (
+                SELECT card_id, floor(random() * stripes)::int AS stripe
+                FROM card_balances
+                WHERE card_id = :cardId AND stripes > 0
+            )
+            UPDATE card_balance_stripes s SET balance = s.balance + :amount
+            FROM picked
+            WHERE s.card_id = picked.card_id AND s.stripe = picked.stripe
+            """, nativeQuery = true)
+    int creditStripe(@Param("cardId") Long cardId, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = """
+            WITH removed AS (
+                DELETE FROM card_balance_stripes
+                WHERE card_id = :cardId AND stripe >= :stripes
+                RETURNING balance
+            )
+            UPDATE card_balances SET stripes = :stripes,
+                                     balance = balance + (SELECT COALESCE(SUM(balance), 0) FROM removed)
+            WHERE card_id = :cardId
+            """, nativeQuery = true)
+    int resizeStripes(@Param("cardId") Long cardId, @Param("stripes") int stripes);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO card_balance_stripes (card_id, stripe, balance)
+            SELECT :cardId, stripe, 0 FROM generate_series(0, :stripes - 1) AS stripe
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int createStripes(@Param("cardId") Long cardId, @Param("stripes") int stripes);
+
+    @Query(value = "SELECT DISTINCT card_id FROM card_balance_stripes WHERE balance <> 0 LIMIT :limit", nativeQuery = true)
+    List<Long> findCardIdsWithStripedCredits(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = """
+            WITH moved AS (
+                UPDATE card_balance_stripes s SET balance = 0
+                FROM (SELECT card_id, stripe, balance FROM card_balance_stripes
+                      WHERE card_id = :cardId AND balance <> 0
+                      FOR UPDATE) old
+                WHERE s.card_id = old.card_id AND s.stripe = old.stripe
+                RETURNING old.balance
+            )
+            UPDATE card_balances SET balance = balance + (SELECT COALESCE(SUM(balance), 0) FROM moved)
+            WHERE card_id = :cardId
+            """, nativeQuery = true)
+    int compactStripes(@Param("cardId") Long cardId);
 }
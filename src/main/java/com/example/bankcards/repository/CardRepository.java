@@ -2,16 +2,59 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.projection.CardNumberHash;
+import com.example.bankcards.repository.projection.IdRange;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
-public interface CardRepository extends JpaRepository<Card, Long>, JpaSpecificationExecutor<Card> {
+public interface CardRepository extends JpaRepository<Card, Long>, JpaSpecificationExecutor<Card>, CardRepositoryCustom {
 
     Optional<Card> findByIdAndOwner(Long id, User owner);
 
-    List<Card> findAllByExpiryDateBefore(LocalDate expiryDateBefore);
+    boolean existsByIdAndOwnerAndCardStatus(Long id, User owner, CardStatus cardStatus);
+
+    @Query("select c.id from Card c where c.id in :ids and c.owner = :owner and c.cardStatus = :status")
+    Set<Long> findIdsByOwnerAndStatus(@Param("ids") Collection<Long> ids, @Param("owner") User owner,
+                                      @Param("status") CardStatus status);
+
+    @Query("select new com.example.bankcards.repository.projection.IdRange(min(c.id), max(c.id)) from Card c " +
+            "where c.expiryDate < :now and c.cardStatus <> :expired")
+    IdRange findExpiringIdRange(@Param("now") LocalDate now, @Param("expired") CardStatus expired);
+
+    @Modifying
+    @Transactional
+    @Query("update Card c set c.cardStatus = :expired " +
+            "where c.id between :fromId and :toId and c.expiryDate < :now and c.cardStatus <> :expired")
+    int markExpired(@Param("fromId") Long fromId, @Param("toId") Long toId, @Param("now") LocalDate now,
+                    @Param("expired") CardStatus expired);
+
+    @Query("select c from Card c where c.id > :afterId and (c.cardLast4 is null or c.cardNumberHash is null) order by c.id")
+    List<Card> findWithoutNumberColumns(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("select new com.example.bankcards.repository.projection.CardNumberHash(c.id, c.cardNumberHash) from Card c " +
+            "where c.cardNumberHash in :hashes")
+    List<CardNumberHash> findCardNumberHashesIn(@Param("hashes") Collection<String> hashes);
+
+    @Query(value = "select id from cards where card_number not like 'v1:%' order by id limit :limit", nativeQuery = true)
+    List<Long> findLegacyEncryptedIds(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "update cards set card_number = :cardNumber where id = :id", nativeQuery = true)
+    int updateEncryptedCardNumber(@Param("id") Long id, @Param("cardNumber") String encryptedCardNumber);
+
+    @Query("select new com.example.bankcards.repository.projection.CardNumberHash(c.id, c.cardNumberHash) from Card c " +
+            "where c.id > :afterId and c.cardNumberHash is not null order by c.id")
+    List<CardNumberHash> findCardNumberHashes(@Param("afterId") Long afterId, Limit limit);
 }
@@ -0,0 +1,22 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.projection.CardSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CardRepositoryCustom {
+
+    Page<CardSummary> findSummaries(Specification<Card> specification, Pageable pageable);
+
+    Slice<CardSummary> findSummarySlice(Specification<Card> specification, Pageable pageable);
+
+    List<CardSummary> findSummariesAfter(Specification<Card> specification, Long afterId, int limit);
+
+    Optional<Card> findByCardNumber(String cardNumber);
+}
@@ -0,0 +1,134 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.projection.CardSummary;
+import com.example.bankcards.util.BlindIndexer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Реализация запросов к картам, которые не выражаются производными методами Spring Data.
+ * Списки карт возвращаются проекциями: запросы выбирают только нужные столбцы и не читают
+ * зашифрованный номер карты, поэтому построение списков не выполняет дешифрование.
+ * Поиск по номеру карты выполняется по слепому индексу номера.
+ * Срез выбирает на одну строку больше размера страницы и определяет наличие следующей страницы
+ * без запроса {@code COUNT(*)}.
+ * Выборка по ключу продолжает список после указанного ID условием {@code id > afterId} с сортировкой по ID,
+ * поэтому стоимость запроса не зависит от номера страницы.
+ */
+@RequiredArgsConstructor
+public class CardRepositoryCustomImpl implements CardRepositoryCustom {
+
+    private final EntityManager entityManager;
+    private final BlindIndexer blindIndexer;
+
+    @Override
+    public Page<CardSummary> findSummaries(Specification<Card> specification, Pageable pageable) {
+        TypedQuery<CardSummary> typedQuery = summaryQuery(specification, pageable);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<CardSummary> content = typedQuery.getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(specification));
+    }
+
+    @Override
+    public Slice<CardSummary> findSummarySlice(Specification<Card> specification, Pageable pageable) {
+        List<CardSummary> content = summaryQuery(specification, pageable)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = content.size() > pageable.getPageSize();
+
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    @Override
+    public List<CardSummary> findSummariesAfter(Specification<Card> specification, Long afterId, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardSummary> query = criteriaBuilder.createQuery(CardSummary.class);
+        Root<Card> root = selectSummary(query, criteriaBuilder);
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            predicates.add(predicate);
+        }
+        if (afterId != null) {
+            predicates.add(criteriaBuilder.greaterThan(root.get("id"), afterId));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+        query.orderBy(criteriaBuilder.asc(root.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Optional<Card> findByCardNumber(String cardNumber) {
+
+        return entityManager.createQuery("select c from Card c where c.cardNumberHash = :hash", Card.class)
+                .setParameter("hash", blindIndexer.hash(cardNumber))
+                .getResultStream()
+                .findFirst();
+    }
+
+    private TypedQuery<CardSummary> summaryQuery(Specification<Card> specification, Pageable pageable) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardSummary> query = criteriaBuilder.createQuery(CardSummary.class);
+        Root<Card> root = selectSummary(query, criteriaBuilder);
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+
+        return entityManager.createQuery(query);
+    }
+
+    private Root<Card> selectSummary(CriteriaQuery<CardSummary> query, CriteriaBuilder criteriaBuilder) {
+        Root<Card> root = query.from(Card.class);
+        Join<Card, User> owner = root.join("owner");
+        query.select(criteriaBuilder.construct(CardSummary.class,
+                root.get("id"),
+                root.get("cardLast4"),
+                owner.get("login"),
+                root.get("expiryDate"),
+                root.get("cardStatus")));
+
+        return root;
+    }
+
+    private long count(Specification<Card> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Card> root = query.from(Card.class);
+        query.select(criteriaBuilder.count(root));
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.repository.projection.IdRange;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Хранилище refresh токенов в памяти с отложенной записью в таблицу refresh_tokens.
+ * Поиск токена выполняется по хеш-таблице без обращения к базе данных.
+ * Новые токены сохраняются в таблицу пакетами с фиксированной задержкой и при остановке приложения,
+ * удаление токенов записывается в таблицу сразу, поэтому отозванный токен не восстанавливается после перезапуска.
+ * При старте хранилище заполняется действующими токенами из таблицы. При аварийной остановке теряются
+ * только токены, созданные после последней записи, и их владельцам потребуется повторный вход.
+ * Подходит только для развертывания в одном экземпляре: токены, созданные другими экземплярами, не видны.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.refresh_store.type", havingValue = "memory")
+@Slf4j
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final ConcurrentMap<String, RefreshToken> tokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RefreshToken> pending = new ConcurrentHashMap<>();
+
+    public InMemoryRefreshTokenStore(RefreshTokenRepository refreshTokenRepository, MeterRegistry meterRegistry) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        Gauge.builder("refresh_tokens.size", tokens, Map::size)
+                .description("Количество refresh токенов в памяти")
+                .register(meterRegistry);
+        Gauge.builder("refresh_tokens.pending", pending, Map::size)
+                .description("Количество refresh токенов, ожидающих записи в базу данных")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Загружает действующие refresh токены из таблицы.
+     */
+    @PostConstruct
+    public void load() {
+        for (RefreshToken refreshToken : refreshTokenRepository.findAllByExpiryDateAfter(Instant.now())) {
+            tokens.put(refreshToken.getToken(), refreshToken);
+        }
+        log.info("В хранилище refresh токенов загружено {} токенов", tokens.size());
+    }
+
+    @Override
+    public RefreshToken save(RefreshToken refreshToken) {
+        tokens.put(refreshToken.getToken(), refreshToken);
+        pending.put(refreshToken.getToken(), refreshToken);
+
+        return refreshToken;
+    }
+
+    @Override
+    public Optional<RefreshToken> findByToken(String token) {
+        return Optional.ofNullable(tokens.get(token));
+    }
+
+    @Override
+    public void delete(String token) {
+        tokens.remove(token);
+        if (pending.remove(token) == null) {
+            refreshTokenRepository.deleteRefreshTokenByToken(token);
+        }
+    }
+
+    /**
+     * Удаляет токены пользователя из памяти. Строки токенов в таблице удаляются каскадно вместе с пользователем.
+     *
+     * @param userId ID пользователя
+     */
+    @Override
+    public void deleteByUserId(Long userId) {
+        tokens.values().removeIf(refreshToken -> userId.equals(refreshToken.getUser().getId()));
+        pending.values().removeIf(refreshToken -> userId.equals(refreshToken.getUser().getId()));
+    }
+
+    @Override
+    public IdRange findExpiredIdRange(Instant expiration) {
+        return refreshTokenRepository.findExpiredIdRange(expiration);
+    }
+
+    @Override
+    public int deleteExpiredRange(Instant expiration, long fromId, long toId) {
+        return refreshTokenRepository.deleteExpiredRange(expiration, fromId, toId);
+    }
+
+    @Override
+    public void evictExpired(Instant expiration) {
+        tokens.values().removeIf(refreshToken -> refreshToken.getExpiryDate().isBefore(expiration));
+        pending.values().removeIf(refreshToken -> refreshToken.getExpiryDate().isBefore(expiration));
+    }
+
+    /**
+     * Записывает новые токены в таблицу.
+     * Если пакет не удалось сохранить целиком, токены сохраняются по одному,
+     * а токены, которые сохранить не удалось (например, пользователь уже удален), отбрасываются.
+     * Токен, удаленный во время записи, удаляется и из таблицы.
+     *
+     * @return количество сохраненных токенов
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh_store.flush_delay}")
+    public int flush() {
+        List<RefreshToken> batch = new ArrayList<>(pending.values());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int saved;
+        try {
+            refreshTokenRepository.saveAll(batch);
+            saved = batch.size();
+        } catch (DataAccessException e) {
+            log.warn("Не удалось сохранить пакет из {} refresh токенов, сохранение по одному", batch.size(), e);
+            saved = 0;
+            for (RefreshToken refreshToken : batch) {
+                try {
+                    refreshToken.setId(null);
+                    refreshTokenRepository.save(refreshToken);
+                    saved++;
+                } catch (DataAccessException ex) {
+                    log.warn("Refresh токен пользователя id={} не сохранен", refreshToken.getUser().getId(), ex);
+                }
+            }
+        }
+        for (RefreshToken refreshToken : batch) {
+            pending.remove(refreshToken.getToken(), refreshToken);
+            if (tokens.get(refreshToken.getToken()) != refreshToken) {
+                refreshTokenRepository.deleteRefreshTokenByToken(refreshToken.getToken());
+            }
+        }
+        log.debug("В базу данных записано {} refresh токенов", saved);
+
+        return saved;
+    }
+
+    /**
+     * Записывает несохраненные токены при остановке приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        int saved = flush();
+        log.info("При остановке в базу данных записано {} refresh токенов", saved);
+    }
+}
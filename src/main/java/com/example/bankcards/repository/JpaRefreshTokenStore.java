@@ -0,0 +1,56 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.repository.projection.IdRange;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Хранилище refresh токенов в таблице refresh_tokens.
+ * Каждая операция выполняется запросом к базе данных.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.refresh_store.type", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaRefreshTokenStore implements RefreshTokenStore {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    @Override
+    public RefreshToken save(RefreshToken refreshToken) {
+        return refreshTokenRepository.save(refreshToken);
+    }
+
+    @Override
+    public Optional<RefreshToken> findByToken(String token) {
+        return refreshTokenRepository.findByToken(token);
+    }
+
+    @Override
+    public void delete(String token) {
+        refreshTokenRepository.deleteRefreshTokenByToken(token);
+    }
+
+    /**
+     * Ничего не делает: строки токенов удаляются каскадно вместе с пользователем.
+     *
+     * @param userId ID пользователя
+     */
+    @Override
+    public void deleteByUserId(Long userId) {
+    }
+
+    @Override
+    public IdRange findExpiredIdRange(Instant expiration) {
+        return refreshTokenRepository.findExpiredIdRange(expiration);
+    }
+
+    @Override
+    public int deleteExpiredRange(Instant expiration, long fromId, long toId) {
+        return refreshTokenRepository.deleteExpiredRange(expiration, fromId, toId);
+    }
+}
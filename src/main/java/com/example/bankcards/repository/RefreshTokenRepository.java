@@ -1,15 +1,31 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.repository.projection.IdRange;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
     Optional<RefreshToken> findByToken(String token);
 
+    @Transactional
     void deleteRefreshTokenByToken(String token);
 
-    void deleteRefreshTokenByExpiryDateBefore(Instant expiryDateBefore);
+    @Query("select new com.example.bankcards.repository.projection.IdRange(min(t.id), max(t.id)) from RefreshToken t " +
+            "where t.expiryDate < :expiration")
+    IdRange findExpiredIdRange(@Param("expiration") Instant expiration);
+
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken t where t.id between :fromId and :toId and t.expiryDate < :expiration")
+    int deleteExpiredRange(@Param("expiration") Instant expiration, @Param("fromId") long fromId, @Param("toId") long toId);
+
+    List<RefreshToken> findAllByExpiryDateAfter(Instant expiryDateAfter);
 }
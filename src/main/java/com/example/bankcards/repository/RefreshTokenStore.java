@@ -0,0 +1,73 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.repository.projection.IdRange;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Хранилище refresh токенов.
+ * Реализация выбирается настройкой {@code jwt.refresh_store.type}:
+ * {@code jpa} — токены читаются и записываются напрямую в таблицу refresh_tokens,
+ * {@code memory} — токены хранятся в памяти и периодически сохраняются в таблицу.
+ */
+public interface RefreshTokenStore {
+
+    /**
+     * Сохраняет refresh токен.
+     *
+     * @param refreshToken refresh токен
+     * @return сохраненный refresh токен
+     */
+    RefreshToken save(RefreshToken refreshToken);
+
+    /**
+     * Находит refresh токен по его значению.
+     *
+     * @param token значение токена
+     * @return refresh токен или пустой {@link Optional}, если токен не найден
+     */
+    Optional<RefreshToken> findByToken(String token);
+
+    /**
+     * Удаляет refresh токен по его значению.
+     *
+     * @param token значение токена
+     */
+    void delete(String token);
+
+    /**
+     * Удаляет все refresh токены пользователя.
+     *
+     * @param userId ID пользователя
+     */
+    void deleteByUserId(Long userId);
+
+    /**
+     * Возвращает границы ID refresh токенов в таблице, срок действия которых истек до указанного времени.
+     *
+     * @param expiration момент времени, до которого истекли токены
+     * @return границы ID или пустые границы, если истекших токенов нет
+     */
+    IdRange findExpiredIdRange(Instant expiration);
+
+    /**
+     * Удаляет из таблицы refresh токены с ID в указанном диапазоне, срок действия которых истек до указанного времени.
+     *
+     * @param expiration момент времени, до которого удаляются токены
+     * @param fromId     начало диапазона ID
+     * @param toId       конец диапазона ID включительно
+     * @return количество удаленных токенов
+     */
+    int deleteExpiredRange(Instant expiration, long fromId, long toId);
+
+    /**
+     * Удаляет из памяти refresh токены, срок действия которых истек до указанного времени.
+     * По умолчанию ничего не делает, так как токены в памяти не хранятся.
+     *
+     * @param expiration момент времени, до которого удаляются токены
+     */
+    default void evictExpired(Instant expiration) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    @Modifying
+    @Transactional
+    @Query("update SchedulerLease l set l.owner = :owner, l.lockedUntil = :lockedUntil, l.lastStartedAt = :now " +
+            "where l.jobName = :jobName and l.lockedUntil <= :now")
+    int acquire(@Param("jobName") String jobName, @Param("owner") String owner,
+                @Param("now") Instant now, @Param("lockedUntil") Instant lockedUntil);
+
+    @Modifying
+    @Transactional
+    @Query("update SchedulerLease l set l.lockedUntil = :lockedUntil where l.jobName = :jobName and l.owner = :owner")
+    int renew(@Param("jobName") String jobName, @Param("owner") String owner, @Param("lockedUntil") Instant lockedUntil);
+
+    @Modifying
+    @Transactional
+    @Query("update SchedulerLease l set l.lockedUntil = :lockedUntil, l.lastFinishedAt = :now, " +
+            "l.lastDurationMs = :durationMs, l.lastRows = :rows where l.jobName = :jobName and l.owner = :owner")
+    int release(@Param("jobName") String jobName, @Param("owner") String owner, @Param("now") Instant now,
+                @Param("lockedUntil") Instant lockedUntil, @Param("durationMs") long durationMs, @Param("rows") long rows);
+
+    @Modifying
+    @Transactional
+    @Query("update SchedulerLease l set l.checkpointId = :checkpointId, l.checkpointRun = :checkpointRun " +
+            "where l.jobName = :jobName and l.owner = :owner")
+    int saveCheckpoint(@Param("jobName") String jobName, @Param("owner") String owner,
+                       @Param("checkpointId") Long checkpointId, @Param("checkpointRun") String checkpointRun);
+}
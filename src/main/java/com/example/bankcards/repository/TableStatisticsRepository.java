@@ -0,0 +1,49 @@
+package com.example.bankcards.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Репозиторий для чтения статистики таблиц планировщика PostgreSQL.
+ * Оценка количества строк берётся из {@code pg_class.reltuples} и обновляется
+ * при {@code ANALYZE}/{@code VACUUM}, поэтому её чтение не сканирует таблицу.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class TableStatisticsRepository {
+
+    private static final String ESTIMATE_SQL = """
+            SELECT CAST(reltuples AS BIGINT) FROM pg_class
+            WHERE oid = CAST(CAST(? AS TEXT) AS regclass)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Возвращает оценку количества строк таблицы.
+     *
+     * @param tableName имя таблицы
+     * @return оценка количества строк или пустое значение, если статистика еще не собрана
+     * или недоступна в используемой БД
+     */
+    public Optional<Long> estimateRowCount(String tableName) {
+        try {
+            List<Long> estimates = jdbcTemplate.queryForList(ESTIMATE_SQL, Long.class, tableName);
+
+            return estimates.stream()
+                    .filter(estimate -> estimate != null && estimate >= 0)
+                    .findFirst();
+        } catch (DataAccessException e) {
+            log.debug("Статистика таблицы {} недоступна: {}", tableName, e.getMessage());
+
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.enums.CardStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Репозиторий для пакетных операций с балансами и журналом переводов через JDBC.
+ * Все строки пакета отправляются в БД одним batch-запросом, без загрузки сущностей.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransferJdbcRepository {
+
+    private static final String DEBIT_SQL = """
+            UPDATE card_balances b SET balance = b.balance - ?
+            WHERE b.card_id = ?
+              AND b.balance
+                  + COALESCE((SELECT SUM(t.amount) FROM transfers t
+                              WHERE t.card_to_id = b.card_id AND NOT t.settled), 0)
+                  + COALESCE((SELECT SUM(s.balance) FROM card_balance_stripes s
+                              WHERE s.card_id = b.card_id), 0) >= ?
+              AND EXISTS (SELECT 1 FROM cards c
+                          WHERE c.id = b.card_id AND c.owner_id = ? AND c.card_status = ?)
+            """;
+
+    private static final String CREDIT_STRIPE_SQL = """
+            WITH picked AS (
+                SELECT card_id, floor(random() * stripes)::int AS stripe
+                FROM card_balances
+                WHERE card_id = ? AND stripes > 0
+            )
+            UPDATE card_balance_stripes s SET balance = s.balance + ?
+            FROM picked
+            WHERE s.card_id = picked.card_id AND s.stripe = picked.stripe
+            """;
+
+    private static final String INSERT_SQL = """
+            INSERT INTO transfers (card_from_id, card_to_id, amount, created_at, settled)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Выполняет списания по всем переводам одним пакетом в порядке следования.
+     *
+     * @param ownerId   ID владельца карт списания
+     * @param transfers переводы, по которым выполняется списание
+     * @return количество изменённых строк для каждого перевода (0 — списание не выполнено)
+     */
+    public int[] debitAll(Long ownerId, List<Transfer> transfers) {
+        if (transfers.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(DEBIT_SQL, transfers, transfers.size(), (ps, transfer) -> {
+            ps.setBigDecimal(1, transfer.getAmount());
+            ps.setLong(2, transfer.getCardFromId());
+            ps.setBigDecimal(3, transfer.getAmount());
+            ps.setLong(4, ownerId);
+            ps.setString(5, CardStatus.ACTIVE.name());
+        })[0];
+    }
+
+    /**
+     * Зачисляет переводы на полосы балансов карт получателей одним пакетом.
+     * Для карт без полос баланса строка не изменяется.
+     *
+     * @param transfers переводы, по которым выполняется зачисление
+     * @return количество изменённых строк для каждого перевода (0 — у карты получателя нет полос)
+     */
+    public int[] creditStripes(List<Transfer> transfers) {
+        if (transfers.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(CREDIT_STRIPE_SQL, transfers, transfers.size(), (ps, transfer) -> {
+            ps.setLong(1, transfer.getCardToId());
+            ps.setBigDecimal(2, transfer.getAmount());
+        })[0];
+    }
+
+    /**
+     * Записывает переводы в журнал одним пакетом.
+     * Переводы, ещё не учтённые в балансе получателя, записываются как неучтённые зачисления.
+     *
+     * @param transfers переводы для записи
+     */
+    public void insertAll(List<Transfer> transfers) {
+        if (transfers.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, transfers, transfers.size(), (ps, transfer) -> {
+            ps.setLong(1, transfer.getCardFromId());
+            ps.setLong(2, transfer.getCardToId());
+            ps.setBigDecimal(3, transfer.getAmount());
+            ps.setTimestamp(4, now);
+            ps.setBoolean(5, transfer.isSettled());
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transfer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface TransferRepository extends JpaRepository<Transfer, Long> {
+
+    @Query(value = "SELECT DISTINCT card_to_id FROM transfers WHERE NOT settled LIMIT :limit", nativeQuery = true)
+    List<Long> findCardIdsWithPendingCredits(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = """
+            WITH settled_credits AS (
+                UPDATE transfers SET settled = true
+                WHERE card_to_id = :cardId AND NOT settled
+                RETURNING amount
+            )
+            UPDATE card_balances SET balance = balance + (SELECT COALESCE(SUM(amount), 0) FROM settled_credits)
+            WHERE card_id = :cardId
+            """, nativeQuery = true)
+    int settlePendingCredits(@Param("cardId") Long cardId);
+}
@@ -0,0 +1,11 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface UserRepositoryCustom {
+
+    Slice<User> findSlice(Specification<User> specification, Pageable pageable);
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.repository.projection;
+
+public record CardNumberHash(
+        Long id,
+        String cardNumberHash
+) {
+}
@@ -0,0 +1,14 @@
+package com.example.bankcards.repository.projection;
+
+import com.example.bankcards.entity.enums.CardStatus;
+
+import java.time.LocalDate;
+
+public record CardSummary(
+        Long id,
+        String cardLast4,
+        String ownerLogin,
+        LocalDate expiryDate,
+        CardStatus cardStatus
+) {
+}
@@ -0,0 +1,157 @@
+package com.example.bankcards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Кэш проверенных access токенов.
+ * Хранит аутентификацию, построенную из токена, по SHA-256 хешу токена до истечения срока его действия,
+ * но не дольше {@code jwt.cache.ttl}, поэтому повторные запросы с тем же токеном не выполняют проверку подписи
+ * и разбор claims, а пользователь, загружаемый из базы данных, периодически перечитывается.
+ * Размер кэша ограничен, счетчики попаданий и промахов публикуются в метриках {@code cache.*}
+ * с тегом {@code cache=access_tokens}.
+ * Токены, отозванные при выходе пользователя, хранятся до истечения их срока действия
+ * и не принимаются даже при успешной проверке подписи, в том числе при выключенном кэшировании.
+ * Токены удаленных пользователей не принимаются в течение максимального срока действия access токена.
+ * Отзыв токенов и пользователей действует только на экземпляре приложения, где он выполнен:
+ * другие экземпляры перестают принимать токены удаленного пользователя после истечения
+ * {@code jwt.cache.ttl} и {@code user.cache.ttl}, а в режиме stateless principal — только после истечения токена.
+ * Списки отозванных токенов и пользователей не ограничены по размеру, чтобы отзыв не вытеснялся
+ * новыми записями: они ограничены только сроком хранения записей.
+ */
+@Component
+@Slf4j
+public class AccessTokenCache {
+
+    private final boolean enabled;
+    private final Cache<String, CachedAuthentication> authentications;
+    private final Cache<String, Instant> revoked;
+    private final Cache<Long, Boolean> revokedUsers;
+
+    public AccessTokenCache(@Value("${jwt.cache.enabled}") boolean enabled,
+                            @Value("${jwt.cache.size}") long size,
+                            @Value("${jwt.cache.ttl}") long ttl,
+                            @Value("${jwt.access_expiration}") long accessMaxAge,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.authentications = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfter(Expiry.<String, CachedAuthentication>creating((key, value) ->
+                        min(remaining(value.expiresAt()), Duration.ofMillis(ttl))))
+                .recordStats()
+                .build();
+        this.revoked = Caffeine.newBuilder()
+                .expireAfter(Expiry.<String, Instant>creating((key, expiresAt) -> remaining(expiresAt)))
+                .build();
+        this.revokedUsers = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(accessMaxAge))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, authentications, "access_tokens");
+    }
+
+    /**
+     * Возвращает аутентификацию для access токена из кэша или проверяет токен и кэширует результат.
+     *
+     * @param token  access токен
+     * @param loader проверка токена, возвращающая аутентификацию и срок действия токена
+     * @return аутентификация или пустой {@link Optional}, если токен невалиден или отозван
+     */
+    public Optional<Authentication> get(String token, Supplier<Optional<CachedAuthentication>> loader) {
+        String key = hash(token);
+        if (revoked.getIfPresent(key) != null) {
+            log.debug("Запрос с отозванным access токеном");
+            return Optional.empty();
+        }
+        if (!enabled) {
+            return loader.get()
+                    .map(CachedAuthentication::authentication)
+                    .filter(this::isUserActive);
+        }
+        CachedAuthentication cached = authentications.getIfPresent(key);
+        if (cached != null && Instant.now().isBefore(cached.expiresAt())) {
+            return Optional.of(cached.authentication())
+                    .filter(this::isUserActive);
+        }
+        Optional<CachedAuthentication> loaded = loader.get();
+        loaded.ifPresent(value -> authentications.put(key, value));
+
+        return loaded.map(CachedAuthentication::authentication)
+                .filter(this::isUserActive);
+    }
+
+    /**
+     * Отзывает access токен до истечения срока его действия и удаляет его из кэша.
+     *
+     * @param token     access токен
+     * @param expiresAt срок действия токена
+     */
+    public void revoke(String token, Instant expiresAt) {
+        String key = hash(token);
+        revoked.put(key, expiresAt);
+        authentications.invalidate(key);
+    }
+
+    /**
+     * Отзывает все access токены пользователя, например после его удаления.
+     *
+     * @param userId ID пользователя
+     */
+    public void revokeUser(Long userId) {
+        revokedUsers.put(userId, Boolean.TRUE);
+    }
+
+    private boolean isUserActive(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof CustomUserDetails userDetails
+                && revokedUsers.getIfPresent(userDetails.getUser().getId()) != null) {
+            log.debug("Запрос с access токеном удаленного пользователя id={}", userDetails.getUser().getId());
+            return false;
+        }
+
+        return true;
+    }
+
+    private static Duration remaining(Instant expiresAt) {
+        Duration remaining = Duration.between(Instant.now(), expiresAt);
+
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    private static Duration min(Duration first, Duration second) {
+        return first.compareTo(second) <= 0 ? first : second;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Алгоритм SHA-256 недоступен", e);
+        }
+    }
+
+    /**
+     * Аутентификация, построенная из проверенного токена, и срок действия токена.
+     *
+     * @param authentication аутентификация
+     * @param expiresAt      срок действия токена
+     */
+    public record CachedAuthentication(Authentication authentication, Instant expiresAt) {
+    }
+}
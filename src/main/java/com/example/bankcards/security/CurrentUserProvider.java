@@ -8,6 +8,9 @@ import org.springframework.stereotype.Component;
 /**
  * Компонент для получения текущего аутентифицированного пользователя из контекста Spring Security.
  * Извлекает объект {@link User} из {@link SecurityContextHolder} через {@link CustomUserDetails}.
+ * В режиме stateless principal возвращаемый пользователь построен из claims access токена:
+ * он не связан с контекстом персистентности и содержит только ID, логин и роль,
+ * чего достаточно для проверок владения картами.
  */
 @Component
 @Slf4j
@@ -1,7 +1,7 @@
 package com.example.bankcards.security;
 
 import com.example.bankcards.entity.User;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.UserCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -11,13 +11,13 @@ import org.springframework.stereotype.Service;
 /**
  * Сервис для загрузки данных пользователя для Spring Security.
  * Реализует интерфейс {@link UserDetailsService} и используется Spring Security
- * для аутентификации пользователя по логину.
+ * для аутентификации пользователя по логину. Пользователи загружаются через {@link UserCache}.
  */
 @Service
 @RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
-    private final UserRepository userRepository;
+    private final UserCache userCache;
 
     /**
      * Загружает пользователя по логину и возвращает {@link UserDetails}.
@@ -30,7 +30,7 @@ public class CustomUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByLoginIgnoreCase(username)
+        User user = userCache.findByLogin(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден"));
 
         return  new CustomUserDetails(user);
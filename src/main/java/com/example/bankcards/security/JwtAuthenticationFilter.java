@@ -14,14 +14,16 @@ import java.io.IOException;
 
 /**
  * Фильтр аутентификации JWT, выполняемый один раз на каждый запрос.
- * Извлекает access token из cookies, проверяет его валидность с помощью {@link JwtTokenProvider}
+ * Извлекает access token из cookies, проверяет его с помощью {@link JwtTokenProvider} за один разбор
  * и устанавливает аутентификацию в {@link SecurityContextHolder} при успешной проверке.
+ * Результат проверки кэшируется в {@link AccessTokenCache} до истечения срока действия токена.
  */
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider jwtTokenProvider;
+    private final AccessTokenCache accessTokenCache;
 
     /**
      * Выполняет фильтрацию запроса.
@@ -37,8 +39,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         String token = resolveTokenFromCookies(request);
-        if (token != null && jwtTokenProvider.validateAccessToken(token)) {
-            SecurityContextHolder.getContext().setAuthentication(jwtTokenProvider.getAuthentication(token));
+        if (token != null) {
+            accessTokenCache.get(token, () -> jwtTokenProvider.parseAccessToken(token)
+                            .map(claims -> new AccessTokenCache.CachedAuthentication(
+                                    jwtTokenProvider.getAuthentication(claims), claims.getExpiration().toInstant())))
+                    .ifPresent(SecurityContextHolder.getContext()::setAuthentication);
         }
         filterChain.doFilter(request, response);
     }
@@ -2,6 +2,10 @@ package com.example.bankcards.security;
 
 import com.example.bankcards.entity.RefreshToken;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.UserRole;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
@@ -13,13 +17,18 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
-import java.util.Base64;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.Optional;
 
 /**
  * Провайдер JWT токенов для аутентификации и авторизации пользователей.
  * Отвечает за создание, проверку и извлечение данных из access и refresh токенов.
- * Использует {@link CustomUserDetailsService} для получения данных пользователя.
+ * Access токен содержит логин, ID и роль пользователя. В режиме stateless principal
+ * аутентификация строится только из этих claims без обращения к базе данных,
+ * иначе данные пользователя загружаются через {@link CustomUserDetailsService}.
+ * Режим stateless principal выключен по умолчанию: в нем удаление пользователя и смена роли
+ * не видны на других экземплярах приложения до истечения access токена.
  */
 @Component
 @RequiredArgsConstructor
@@ -34,16 +43,30 @@ public class JwtTokenProvider {
     @Value("${jwt.access_expiration}")
     private long accessMaxAge;
 
+    @Value("${jwt.stateless_principal}")
+    private boolean statelessPrincipal;
+
     private final CustomUserDetailsService userDetailsService;
 
+    private SecretKey accessKey;
+    private SecretKey refreshKey;
+    private JwtParser accessParser;
+    private JwtParser refreshParser;
+
     /**
-     * Инициализация секретных ключей после создания бина.
-     * Преобразует их в Base64 для использования при подписи JWT.
+     * Инициализация ключей подписи и парсеров после создания бина.
+     * Ключи и неизменяемые парсеры создаются один раз и переиспользуются для всех токенов.
      */
     @PostConstruct
     protected void init() {
-        accessSecretKey = Base64.getEncoder().encodeToString(accessSecretKey.getBytes());
-        refreshSecretKey = Base64.getEncoder().encodeToString(refreshSecretKey.getBytes());
+        accessKey = Keys.hmacShaKeyFor(accessSecretKey.getBytes(StandardCharsets.UTF_8));
+        refreshKey = Keys.hmacShaKeyFor(refreshSecretKey.getBytes(StandardCharsets.UTF_8));
+        accessParser = Jwts.parser()
+                .verifyWith(accessKey)
+                .build();
+        refreshParser = Jwts.parser()
+                .verifyWith(refreshKey)
+                .build();
     }
 
     /**
@@ -58,9 +81,11 @@ public class JwtTokenProvider {
 
         return Jwts.builder()
                 .claim("login", user.getLogin())
+                .claim("id", user.getId())
+                .claim("role", user.getRole().name())
                 .issuedAt(now)
                 .expiration(validity)
-                .signWith(getSigningKey(accessSecretKey))
+                .signWith(accessKey)
                 .compact();
     }
 
@@ -74,44 +99,25 @@ public class JwtTokenProvider {
         return Jwts.builder()
                 .claim("uuid", refreshToken.getToken())
                 .expiration(Date.from(refreshToken.getExpiryDate()))
-                .signWith(getSigningKey(refreshSecretKey))
+                .signWith(refreshKey)
                 .compact();
     }
 
     /**
-     * Валидирует access токен.
+     * Проверяет подпись и срок действия access токена и возвращает его claims.
+     * Токен разбирается один раз, полученные claims используются для построения аутентификации.
      *
      * @param token access токен
-     * @return true, если токен валиден, иначе false
+     * @return claims токена или пустой {@link Optional}, если токен невалиден
      */
-    public boolean validateAccessToken(String token) {
+    public Optional<Claims> parseAccessToken(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey(accessSecretKey))
-                    .build()
-                    .parseSignedClaims(token);
-
-            return true;
-        } catch (Exception e) {
-            return false;
+            return Optional.of(accessParser.parseSignedClaims(token).getPayload());
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
         }
     }
 
-    /**
-     * Извлекает логин пользователя из access токена.
-     *
-     * @param token access токен
-     * @return логин пользователя
-     */
-    public String extractLogin(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey(accessSecretKey))
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .get("login", String.class);
-    }
-
     /**
      * Извлекает UUID refresh токена из JWT.
      *
@@ -119,30 +125,31 @@ public class JwtTokenProvider {
      * @return UUID токена
      */
     public String extractUUIDRefreshToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey(refreshSecretKey))
-                .build()
-                .parseSignedClaims(token)
+        return refreshParser.parseSignedClaims(token)
                 .getPayload()
                 .get("uuid", String.class);
     }
 
     /**
-     * Получает объект аутентификации {@link Authentication} из access токена.
+     * Получает объект аутентификации {@link Authentication} из claims проверенного access токена.
+     * В режиме stateless principal пользователь строится из claims токена и содержит только
+     * ID, логин и роль; токены, выпущенные до появления этих claims, обрабатываются через базу данных.
      *
-     * @param token access токен
+     * @param claims claims access токена, полученные из {@link #parseAccessToken(String)}
      * @return объект аутентификации Spring Security
      */
-    public Authentication getAuthentication(String token) {
-        String email = extractLogin(token);
-        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+    public Authentication getAuthentication(Claims claims) {
+        UserDetails userDetails;
+        if (statelessPrincipal && claims.containsKey("id") && claims.containsKey("role")) {
+            userDetails = new CustomUserDetails(User.builder()
+                    .id(claims.get("id", Long.class))
+                    .login(claims.get("login", String.class))
+                    .role(UserRole.valueOf(claims.get("role", String.class)))
+                    .build());
+        } else {
+            userDetails = userDetailsService.loadUserByUsername(claims.get("login", String.class));
+        }
         return new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
     }
 
-    private SecretKey getSigningKey(String secret) {
-        byte[] keyBytes = Base64.getDecoder().decode(secret);
-
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-
 }
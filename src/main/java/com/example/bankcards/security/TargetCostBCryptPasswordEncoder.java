@@ -0,0 +1,42 @@
+package com.example.bankcards.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link BCryptPasswordEncoder} с целевой стоимостью хеширования.
+ * В отличие от стандартной реализации, требует перехеширования пароля не только при стоимости
+ * ниже целевой, но и при более высокой, чтобы стоимость можно было как повышать, так и снижать.
+ */
+public class TargetCostBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final int strength;
+
+    /**
+     * @param strength целевая стоимость хеширования (log2 количества раундов)
+     */
+    public TargetCostBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    /**
+     * Проверяет, отличается ли стоимость хеша от целевой.
+     *
+     * @param encodedPassword хеш пароля
+     * @return {@code true}, если пароль нужно перехешировать с целевой стоимостью
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+}
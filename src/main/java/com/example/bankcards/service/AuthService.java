@@ -8,6 +8,7 @@ import com.example.bankcards.entity.enums.UserRole;
 import com.example.bankcards.exception.WrongParameterException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,6 +17,7 @@ import org.springframework.transaction.annotation.Transactional;
  * Сервис для аутентификации и регистрации пользователей.
  * Отвечает за проверку учетных данных, создание новых учетных записей
  * и возврат DTO, используемых в REST-контроллере.
+ * Хеширование и проверка паролей выполняются в {@link PasswordHashingExecutor}.
  */
 @Service
 @RequiredArgsConstructor
@@ -24,9 +26,12 @@ public class AuthService {
 
     private final UserService userService;
     private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
 
     /**
      * Выполняет аутентификацию пользователя по логину и паролю.
+     * Если хеш пароля создан с другой стоимостью или алгоритмом, после успешной проверки
+     * пароль перехешируется с текущими настройками.
      *
      * @param dto DTO с учетными данными пользователя
      * @return данные пользователя в виде {@link UserResponseDTO}
@@ -39,6 +44,9 @@ public class AuthService {
             log.warn("Неудачная попытка входа: неверный пароль для login={}", dto.login());
             throw new WrongParameterException("Неверный логин или пароль");
         }
+        if (passwordEncoder.upgradeEncoding(user.getPasswordHash())) {
+            upgradePassword(user, dto.password());
+        }
         log.info("Пользователь login={} успешно вошел в систему", dto.login());
 
         return mapToDTO(user);
@@ -58,7 +66,7 @@ public class AuthService {
         log.info("Регистрация нового пользователя login={}", dto.login());
         User user = User.builder()
                 .login(dto.login())
-                .passwordHash(passwordEncoder.encode(dto.password()))
+                .passwordHash(passwordHashingExecutor.execute(() -> passwordEncoder.encode(dto.password())))
                 .role(UserRole.ROLE_USER)
                 .build();
         User saveUser = userService.saveUser(user);
@@ -68,9 +76,19 @@ public class AuthService {
     }
 
 
+    private void upgradePassword(User user, String password) {
+        String passwordHash = passwordHashingExecutor.execute(() -> passwordEncoder.encode(password));
+        try {
+            userService.updatePasswordHash(user.getId(), passwordHash);
+            log.info("Хеш пароля пользователя id={} обновлен", user.getId());
+        } catch (DataAccessException e) {
+            log.warn("Не удалось обновить хеш пароля пользователя id={}", user.getId(), e);
+        }
+    }
+
     private boolean checkPassword(String password, String hash) {
 
-        return passwordEncoder.matches(password, hash);
+        return passwordHashingExecutor.execute(() -> passwordEncoder.matches(password, hash));
     }
 
     private UserResponseDTO mapToDTO(User user) {
@@ -4,26 +4,41 @@ import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardBalance;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.exception.WrongParameterException;
 import com.example.bankcards.repository.CardBalanceRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TableStatisticsRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.projection.CardSummary;
+import com.example.bankcards.repository.projection.IdRange;
+import com.example.bankcards.util.AesGcmEncryptor;
+import com.example.bankcards.util.BlindIndexer;
 import com.example.bankcards.util.CardUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Сервис для административных операций с картами.
- * Предоставляет методы для получения всех карт, создания, блокировки, активации, удаления
+ * Предоставляет методы для получения всех карт, создания (в том числе пакетного), блокировки, активации, удаления
  * и обновления статусов просроченных карт.
  */
 @Service
@@ -31,42 +46,158 @@ import java.util.List;
 @Slf4j
 public class CardAdminService {
 
+    /**
+     * Имя задачи обновления статуса просроченных карт.
+     */
+    public static final String EXPIRE_CARDS_JOB = "update_expired_cards";
+
+    private static final int MAX_NUMBER_ATTEMPTS = 5;
+
+    /**
+     * Имя задачи заполнения столбцов номера и перешифрования номеров карт.
+     */
+    public static final String BACKFILL_CARDS_JOB = "backfill_card_columns";
+
     private final CardRepository cardRepository;
     private final CardBalanceRepository cardBalanceRepository;
     private final UserService userService;
+    private final TransferRepository transferRepository;
+    private final TransactionRetryService transactionRetryService;
+    private final BlindIndexer blindIndexer;
+    private final CardNumberAllocator cardNumberAllocator;
+    private final MeterRegistry meterRegistry;
+    private final RangeJobRunner rangeJobRunner;
+    private final TableStatisticsRepository tableStatisticsRepository;
+    private final AesGcmEncryptor aesGcmEncryptor;
 
     /**
      * Возвращает страницу всех карт с учетом переданной спецификации и пагинации.
+     * Карты загружаются в виде проекций без номера карты, поэтому дешифрование не выполняется.
      *
      * @param specification спецификация для фильтрации карт
      * @param pageable      параметры пагинации
      * @return страница карт
      */
-    public Page<Card> getAll(Specification<Card> specification, Pageable pageable) {
+    public Page<CardSummary> getAll(Specification<Card> specification, Pageable pageable) {
         log.info("Админ запрашивает список карт");
-        Page<Card> cards = cardRepository.findAll(specification, pageable);
+        Page<CardSummary> cards = cardRepository.findSummaries(specification, pageable);
         log.info("Найдено {} карт", cards.getTotalElements());
 
         return cards;
     }
 
+    /**
+     * Возвращает срез всех карт без вычисления общего количества.
+     * Наличие следующей страницы определяется выборкой лишней строки.
+     *
+     * @param specification спецификация фильтров
+     * @param pageable      параметры пагинации
+     * @return срез карт
+     */
+    public Slice<CardSummary> getAllSlice(Specification<Card> specification, Pageable pageable) {
+        log.info("Админ запрашивает срез списка карт");
+        Slice<CardSummary> cards = cardRepository.findSummarySlice(specification, pageable);
+        log.info("Найдено {} карт", cards.getNumberOfElements());
+
+        return cards;
+    }
+
+    /**
+     * Возвращает оценку общего количества карт по статистике планировщика.
+     * Если статистика недоступна, выполняется точный подсчет.
+     *
+     * @return оценка количества карт
+     */
+    public long estimateCount() {
+
+        return tableStatisticsRepository.estimateRowCount("cards")
+                .orElseGet(cardRepository::count);
+    }
+
+    /**
+     * Возвращает карты с ID больше указанного в порядке возрастания ID.
+     *
+     * @param specification спецификация для фильтрации карт
+     * @param afterId       ID последней карты предыдущей страницы или {@code null} для первой страницы
+     * @param limit         максимальное количество карт
+     * @return список карт
+     */
+    public List<CardSummary> getAllAfter(Specification<Card> specification, Long afterId, int limit) {
+        log.info("Админ запрашивает список карт после карты id={}", afterId);
+        List<CardSummary> cards = cardRepository.findSummariesAfter(specification, afterId, limit);
+        log.info("Найдено {} карт", cards.size());
+
+        return cards;
+    }
+
     /**
      * Создает новую карту для указанного пользователя.
+     * Карта и баланс вставляются в отдельной транзакции. Если номер уже выдан другим экземпляром
+     * приложения, вставка отклоняется уникальным индексом слепого индекса номера и повторяется
+     * в новой транзакции с новым номером, поэтому метод следует вызывать вне открытой транзакции.
      *
      * @param ownerId ID пользователя-владельца
      * @return созданная карта с инициализированным балансом
+     * @throws IllegalStateException если свободный номер не удалось выделить за допустимое число попыток
      */
     public Card create(Long ownerId) {
         log.info("Создание новой карты для пользователя id={}", ownerId);
         User user = userService.findUserById(ownerId);
-        Card saveCard = saveNewCard(user);
-        CardBalance saveBalance = saveNewCardBalance(saveCard);
-        saveCard.setBalance(saveBalance);
+        Card saveCard = insertWithUniqueNumbers(() -> {
+            Card card = newCard(user);
+            card.setCardNumber(cardNumberAllocator.allocate());
+            Card saved = cardRepository.saveAndFlush(card);
+            saved.setBalance(saveNewCardBalance(saved));
+
+            return saved;
+        });
         log.info("Карта id={} успешно создана для пользователя id={}", saveCard.getId(), ownerId);
 
         return saveCard;
     }
 
+    /**
+     * Создает пакет карт для нескольких пользователей в одной транзакции.
+     * Пользователи загружаются одним запросом, а карты и их балансы вставляются пакетами JDBC:
+     * ID карт выдаются из последовательности с шагом, поэтому вставка не требует обращения к базе за каждым ID.
+     * Пакет вставляется целиком или не вставляется совсем: если хотя бы один номер уже выдан другим экземпляром
+     * приложения, транзакция откатывается и пакет повторяется в новой транзакции с новыми номерами.
+     * Метод следует вызывать вне открытой транзакции.
+     *
+     * @param cardsByOwner количество карт для каждого ID пользователя
+     * @return созданные карты с инициализированными балансами
+     * @throws UserNotFoundException если хотя бы один пользователь не найден
+     * @throws IllegalStateException если свободные номера не удалось выделить за допустимое число попыток
+     */
+    public List<Card> createBatch(Map<Long, Integer> cardsByOwner) {
+        Map<Long, User> users = userService.findUsersByIds(cardsByOwner.keySet());
+        List<Card> saveCards = insertWithUniqueNumbers(() -> {
+            List<Card> cards = new ArrayList<>();
+            cardsByOwner.forEach((ownerId, count) -> {
+                for (int i = 0; i < count; i++) {
+                    Card card = newCard(users.get(ownerId));
+                    card.setCardNumber(cardNumberAllocator.allocate());
+                    cards.add(card);
+                }
+            });
+            List<Card> saved = cardRepository.saveAllAndFlush(cards);
+            List<CardBalance> saveBalances = cardBalanceRepository.saveAll(saved.stream()
+                    .map(card -> CardBalance.builder()
+                            .card(card)
+                            .balance(BigDecimal.ZERO)
+                            .build())
+                    .toList());
+            for (int i = 0; i < saved.size(); i++) {
+                saved.get(i).setBalance(saveBalances.get(i));
+            }
+
+            return saved;
+        });
+        log.info("Создано {} карт для {} пользователей", saveCards.size(), users.size());
+
+        return saveCards;
+    }
+
     /**
      * Блокирует карту по указанному ID.
      *
@@ -103,16 +234,184 @@ public class CardAdminService {
 
     /**
      * Обновляет статус всех карт, срок действия которых истек на указанную дату.
+     * Границы ID просроченных карт со статусом, отличным от EXPIRED, определяются по частичному индексу,
+     * после чего статус обновляется запросами UPDATE по диапазонам ID размером {@code chunkSize}
+     * через {@link RangeJobRunner}: параллельно, каждый диапазон в собственной транзакции и с контрольной точкой,
+     * которая используется только повторным запуском на ту же дату.
+     * Карты не загружаются и номера не дешифруются.
+     * Количество обновленных карт и длительность публикуются в метриках {@code cards.expired} и {@code cards.expire}.
      *
-     * @param now текущая дата для проверки просроченных карт
+     * @param now       текущая дата для проверки просроченных карт
+     * @param chunkSize размер диапазона ID, обновляемого в одной транзакции
+     * @return количество карт, переведенных в статус EXPIRED
      */
-    @Transactional
-    public void updateForExpiredCard(LocalDate now) {
+    public long updateForExpiredCard(LocalDate now, int chunkSize) {
         log.info("Обновление статуса просроченных карт на дату {}", now);
-        List<Card> cards = cardRepository.findAllByExpiryDateBefore(now);
-        cards.forEach(card -> card.setCardStatus(CardStatus.EXPIRED));
-        cardRepository.saveAll(cards);
-        log.info("Обновлено {} карт до статуса EXPIRED", cards.size());
+        IdRange range = cardRepository.findExpiringIdRange(now, CardStatus.EXPIRED);
+        if (range == null || range.minId() == null) {
+            log.info("Просроченных карт для обновления нет");
+            return 0;
+        }
+        Counter expired = meterRegistry.counter("cards.expired");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long total = rangeJobRunner.run(EXPIRE_CARDS_JOB, now.toString(), range, chunkSize, (fromId, toId) -> {
+            int updated = cardRepository.markExpired(fromId, toId, now, CardStatus.EXPIRED);
+            expired.increment(updated);
+            log.debug("Карты id={}..{}: обновлено {} карт до статуса EXPIRED", fromId, toId, updated);
+            return updated;
+        });
+        sample.stop(meterRegistry.timer("cards.expire"));
+        log.info("Обновлено {} карт до статуса EXPIRED", total);
+
+        return total;
+    }
+
+    /**
+     * Переносит неучтённые зачисления из журнала переводов в снимки балансов карт.
+     * Каждая карта обрабатывается отдельной транзакцией, чтобы блокировка строки баланса
+     * удерживалась как можно меньше и не мешала переводам с других карт.
+     *
+     * @param batchSize максимальное количество карт, обрабатываемых за один вызов
+     * @return количество карт, по которым были учтены зачисления
+     */
+    public int settlePendingCredits(int batchSize) {
+        List<Long> cardIds = transferRepository.findCardIdsWithPendingCredits(batchSize);
+        for (Long cardId : cardIds) {
+            transactionRetryService.execute(() -> {
+                transferRepository.settlePendingCredits(cardId);
+            });
+        }
+        log.debug("Зачисления учтены в балансах {} карт", cardIds.size());
+
+        return cardIds.size();
+    }
+
+    /**
+     * Изменяет количество полос баланса карты.
+     * Зачисления на карту с полосами применяются к случайной полосе, поэтому частые зачисления
+     * распределяются между несколькими строками. Баланс удаляемых полос переносится в основной баланс,
+     * значение 0 отключает полосы.
+     *
+     * @param cardId  ID карты
+     * @param stripes новое количество полос
+     */
+    public void setBalanceStripes(Long cardId, int stripes) {
+        log.info("Изменение количества полос баланса карты id={} на {}", cardId, stripes);
+        transactionRetryService.execute(() -> {
+            if (cardBalanceRepository.resizeStripes(cardId, stripes) == 0) {
+                log.warn("Баланс карты id={} не найден", cardId);
+                throw new WrongParameterException("Карты с таким id не существует");
+            }
+            if (stripes > 0) {
+                cardBalanceRepository.createStripes(cardId, stripes);
+            }
+        });
+        log.info("Количество полос баланса карты id={} изменено на {}", cardId, stripes);
+    }
+
+    /**
+     * Переносит зачисления из полос балансов в основные балансы карт.
+     * Каждая карта обрабатывается отдельной транзакцией.
+     *
+     * @param batchSize максимальное количество карт, обрабатываемых за один вызов
+     * @return количество карт, полосы которых были перенесены
+     */
+    public int compactBalanceStripes(int batchSize) {
+        List<Long> cardIds = cardBalanceRepository.findCardIdsWithStripedCredits(batchSize);
+        for (Long cardId : cardIds) {
+            transactionRetryService.execute(() -> {
+                cardBalanceRepository.compactStripes(cardId);
+            });
+        }
+        log.debug("Полосы балансов перенесены для {} карт", cardIds.size());
+
+        return cardIds.size();
+    }
+
+    /**
+     * Заполняет последние 4 цифры и слепой индекс номера для карт, созданных до появления
+     * столбцов {@code card_last4} и {@code card_number_hash}.
+     * Карты обрабатываются пачками по возрастанию ID, каждая пачка в отдельной транзакции.
+     * Прежнее ограничение уникальности сравнивало шифротексты и не обнаруживало повторяющиеся номера,
+     * поэтому для карты, номер которой совпадает с номером другой карты, слепой индекс не заполняется,
+     * а ID обеих карт записываются в журнал, чтобы уникальный индекс не прерывал заполнение.
+     *
+     * @param batchSize размер пачки
+     * @return количество обновлённых карт
+     */
+    public int backfillCardColumns(int batchSize) {
+        int total = 0;
+        long afterId = 0;
+        List<Card> cards;
+        do {
+            long fromId = afterId;
+            cards = transactionRetryService.execute(() -> fillNumberColumns(
+                    cardRepository.findWithoutNumberColumns(fromId, Limit.of(batchSize))));
+            total += cards.size();
+            if (!cards.isEmpty()) {
+                afterId = cards.get(cards.size() - 1).getId();
+            }
+        } while (cards.size() == batchSize);
+        log.debug("Столбцы номера заполнены для {} карт", total);
+
+        return total;
+    }
+
+    /**
+     * Перешифровывает номера карт, зашифрованные ранее через jasypt, в формат AES-GCM.
+     * Hibernate сравнивает расшифрованные значения, поэтому неизмененная карта при сохранении
+     * не перезаписывается, и номер обновляется напрямую в столбце.
+     * Карты обрабатываются пачками, каждая пачка в отдельной транзакции.
+     *
+     * @param batchSize размер пачки
+     * @return количество перешифрованных карт
+     */
+    public int reencryptLegacyCardNumbers(int batchSize) {
+        int total = 0;
+        int updated;
+        do {
+            updated = transactionRetryService.execute(() -> {
+                List<Card> cards = cardRepository.findAllById(cardRepository.findLegacyEncryptedIds(batchSize));
+                cards.forEach(card -> cardRepository.updateEncryptedCardNumber(card.getId(),
+                        aesGcmEncryptor.encrypt(card.getCardNumber())));
+
+                return cards.size();
+            });
+            total += updated;
+        } while (updated == batchSize);
+        log.debug("Перешифровано {} номеров карт", total);
+
+        return total;
+    }
+
+    private List<Card> fillNumberColumns(List<Card> cards) {
+        Map<Long, String> hashes = new HashMap<>();
+        cards.forEach(card -> {
+            card.setCardLast4(CardUtil.lastDigits(card.getCardNumber()));
+            if (card.getCardNumberHash() == null) {
+                hashes.put(card.getId(), blindIndexer.hash(card.getCardNumber()));
+            }
+        });
+        if (hashes.isEmpty()) {
+            return cards;
+        }
+        Map<String, Long> holders = new HashMap<>();
+        cardRepository.findCardNumberHashesIn(hashes.values())
+                .forEach(existing -> holders.put(existing.cardNumberHash(), existing.id()));
+        cards.stream()
+                .filter(card -> hashes.containsKey(card.getId()))
+                .forEach(card -> {
+                    String hash = hashes.get(card.getId());
+                    Long holder = holders.putIfAbsent(hash, card.getId());
+                    if (holder != null) {
+                        log.warn("Номер карты id={} совпадает с номером карты id={}, слепой индекс не заполнен",
+                                card.getId(), holder);
+                        return;
+                    }
+                    card.setCardNumberHash(hash);
+                });
+
+        return cards;
     }
 
     private void setStatus(Long cardId, CardStatus cardStatus) {
@@ -123,22 +422,28 @@ public class CardAdminService {
         cardRepository.save(card);
     }
 
-    private Card saveNewCard(User user) {
-        Card card = Card.builder()
+    private Card newCard(User user) {
+
+        return Card.builder()
                 .owner(user)
                 .expiryDate(LocalDate.now().plusYears(5))
                 .cardStatus(CardStatus.ACTIVE)
                 .build();
-        for (int i = 0; i < 5; i++) {
-            card.setCardNumber(CardUtil.generateRandomNumberCard());
+    }
+
+    private <T> T insertWithUniqueNumbers(Supplier<T> insert) {
+        for (int attempt = 1; ; attempt++) {
             try {
-                return cardRepository.save(card);
+                return transactionRetryService.execute(insert);
             } catch (DataIntegrityViolationException e) {
-                log.warn("Попытка генерации карты с уникальным номером не удалась, повторная попытка");
+                if (attempt >= MAX_NUMBER_ATTEMPTS) {
+                    log.error("Не удалось вставить карты с уникальными номерами за {} попыток", attempt);
+                    throw new IllegalStateException("Не удалось выделить свободный номер карты", e);
+                }
+                log.warn("Номер карты уже выдан другим экземпляром приложения, повтор с новым номером (попытка {} из {})",
+                        attempt + 1, MAX_NUMBER_ATTEMPTS);
             }
         }
-        log.error("Не удалось создать карту для пользователя id={}", user.getId());
-        throw new RuntimeException("Не удалось создать карту");
     }
 
     private CardBalance saveNewCardBalance(Card card) {
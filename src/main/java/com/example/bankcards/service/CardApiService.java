@@ -1,30 +1,46 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.request.card.BatchNewCardRequestDTO;
+import com.example.bankcards.dto.request.card.BatchTransferRequestDTO;
 import com.example.bankcards.dto.request.card.CardRequestDTO;
+import com.example.bankcards.dto.request.card.CardStripesRequestDTO;
 import com.example.bankcards.dto.request.card.NewCardRequestDTO;
+import com.example.bankcards.dto.request.card.OwnerCardsRequestDTO;
 import com.example.bankcards.dto.request.card.TransferRequestDTO;
+import com.example.bankcards.dto.request.TotalMode;
 import com.example.bankcards.dto.response.MessageResponseDTO;
 import com.example.bankcards.dto.response.PagedResponseDTO;
 import com.example.bankcards.dto.response.card.BalanceResponseDTO;
+import com.example.bankcards.dto.response.card.BatchTransferResponseDTO;
 import com.example.bankcards.dto.response.card.CardResponseDTO;
+import com.example.bankcards.dto.response.card.TransferResultDTO;
 import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.CardBalance;
+import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.projection.CardSummary;
 import com.example.bankcards.repository.specification.CardSpecification;
 import com.example.bankcards.util.CardUtil;
+import com.example.bankcards.util.PageCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Сервис для операций с картами, объединяющий функционал пользователя и администратора.
@@ -38,13 +54,24 @@ public class CardApiService {
 
     private final CardUserService cardUserService;
     private final CardAdminService cardAdminService;
+    private final TransactionRetryService transactionRetryService;
+    private final IdempotencyService idempotencyService;
+    private final TransferLaneExecutor transferLaneExecutor;
+
+    private static final String TRANSFER_SUCCESS_MESSAGE = "Перевод осуществлен успешно";
 
     /**
      * Возвращает список карт текущего пользователя с фильтрацией и пагинацией.
+     * Если передан курсор, выполняется выборка по ключу: страница продолжает список после карты из курсора,
+     * номер страницы игнорируется, а общее количество карт не вычисляется.
+     * В режиме {@link TotalMode#NONE} запрос количества не выполняется. Выборка всегда отфильтрована
+     * по владельцу, поэтому режим {@link TotalMode#ESTIMATE} вычисляет точное количество.
      *
      * @param currentUser    текущий пользователь
      * @param page           номер страницы (начиная с 0)
      * @param size           размер страницы
+     * @param cursor         курсор следующей страницы, пустая строка для первой страницы или {@code null} для пагинации по номеру
+     * @param total          режим вычисления общего количества карт
      * @param expiryDateFrom фильтр по дате окончания от
      * @param expiryDateTo   фильтр по дате окончания до
      * @param status         фильтр по статусу карты
@@ -54,20 +81,32 @@ public class CardApiService {
      * @return страничный список DTO карт
      */
     @Transactional(readOnly = true)
-    public PagedResponseDTO<CardResponseDTO> getMyCards(User currentUser, Integer page, Integer size,
-                                                        LocalDate expiryDateFrom, LocalDate expiryDateTo,
+    public PagedResponseDTO<CardResponseDTO> getMyCards(User currentUser, Integer page, Integer size, String cursor,
+                                                        TotalMode total, LocalDate expiryDateFrom, LocalDate expiryDateTo,
                                                         CardStatus status, BigDecimal balanceFrom,
                                                         BigDecimal balanceTo, Boolean isRequestBlock) {
         log.info("Пользователь id={} запрашивает свои карты", currentUser.getId());
         Specification<Card> specification = getSpecification(currentUser,null, expiryDateFrom, expiryDateTo,
                 status, balanceFrom, balanceTo, isRequestBlock);
+        if (cursor != null) {
+            List<CardSummary> cards = cardUserService.getMyCardsAfter(specification, PageCursor.decode(cursor), size + 1);
+            log.info("Найдено {} карт для пользователя id={} по курсору", cards.size(), currentUser.getId());
+
+            return mapToCursorDTO(cards, size);
+        }
 
         Pageable pageable = PageRequest.of(page, size);
+        if (total == TotalMode.NONE) {
+            Slice<CardSummary> cards = cardUserService.getMyCardsSlice(specification, pageable);
+            log.info("Найдено {} карт для пользователя id={} без подсчета", cards.getNumberOfElements(), currentUser.getId());
+
+            return mapToPagedDTO(cards, null);
+        }
 
-        Page<Card> cards = cardUserService.getMyCards(specification, pageable);
+        Page<CardSummary> cards = cardUserService.getMyCards(specification, pageable);
         log.info("Найдено {} карт для пользователя id={}", cards.getTotalElements(), currentUser.getId());
 
-        return mapToPagedDTO(cards);
+        return mapToPagedDTO(cards, cards.getTotalElements());
     }
 
     /**
@@ -80,26 +119,67 @@ public class CardApiService {
     @Transactional(readOnly = true)
     public BalanceResponseDTO getBalanceByCard(User currentUser, Long cardId) {
         log.info("Пользователь id={} запрашивает баланс карты id={}", currentUser.getId(), cardId);
-        CardBalance cardBalance = cardUserService.getCardBalance(currentUser, cardId);
+        BigDecimal balance = cardUserService.getCardBalance(currentUser, cardId);
         log.info("Баланс карты id={} успешно получен", cardId);
 
-        return mapToBalanceDTO(cardBalance);
+        return mapToBalanceDTO(balance);
     }
 
     /**
      * Выполняет перевод средств между картами пользователя.
+     * Перевод выполняется в отдельной транзакции, которая автоматически повторяется
+     * при взаимной блокировке или ошибке сериализации.
+     * Если передан ключ идемпотентности, повторный запрос с тем же ключом не выполняет перевод повторно,
+     * а возвращает сохранённый результат. При включенном {@link TransferLaneExecutor} перевод выполняется
+     * в дорожке карты списания.
      *
      * @param currentUser        текущий пользователь
      * @param transferRequestDTO DTO с данными перевода
+     * @param idempotencyKey     ключ идемпотентности или {@code null}
      * @return сообщение об успешном переводе
      */
-    @Transactional
-    public MessageResponseDTO transfer(User currentUser, TransferRequestDTO transferRequestDTO) {
+    public MessageResponseDTO transfer(User currentUser, TransferRequestDTO transferRequestDTO, String idempotencyKey) {
         log.info("Пользователь id={} осуществялет перевод средств", currentUser.getId());
-        cardUserService.transferMoney(currentUser, transferRequestDTO.cardIdFrom(), transferRequestDTO.cardIdTo(), transferRequestDTO.amount());
+        String message = transferLaneExecutor.execute(transferRequestDTO.cardIdFrom(), () -> {
+            if (idempotencyKey == null) {
+                transactionRetryService.execute(() -> cardUserService.transferMoney(currentUser, transferRequestDTO.cardIdFrom(),
+                        transferRequestDTO.cardIdTo(), transferRequestDTO.amount()));
+
+                return TRANSFER_SUCCESS_MESSAGE;
+            }
+
+            return idempotencyService.execute(currentUser.getId(), idempotencyKey,
+                    transferRequestDTO.cardIdFrom() + ":" + transferRequestDTO.cardIdTo() + ":"
+                            + transferRequestDTO.amount().stripTrailingZeros().toPlainString(),
+                    () -> transferMoney(currentUser, transferRequestDTO));
+        });
         log.info("Перевод средств пользователем id={} выполнен успешно", currentUser.getId());
 
-        return new MessageResponseDTO("Перевод осуществлен успешно");
+        return new MessageResponseDTO(message);
+    }
+
+    /**
+     * Выполняет пакет переводов между картами пользователя в одной транзакции.
+     * Транзакция автоматически повторяется при взаимной блокировке или ошибке сериализации.
+     *
+     * @param currentUser             текущий пользователь
+     * @param batchTransferRequestDTO DTO с переводами пакета и режимом выполнения
+     * @return результаты выполнения каждого перевода пакета
+     */
+    public BatchTransferResponseDTO transferBatch(User currentUser, BatchTransferRequestDTO batchTransferRequestDTO) {
+        log.info("Пользователь id={} выполняет пакет из {} переводов", currentUser.getId(), batchTransferRequestDTO.transfers().size());
+        List<Transfer> transfers = batchTransferRequestDTO.transfers().stream()
+                .map(dto -> Transfer.builder()
+                        .cardFromId(dto.cardIdFrom())
+                        .cardToId(dto.cardIdTo())
+                        .amount(dto.amount())
+                        .build())
+                .toList();
+        Map<Integer, String> failures = transactionRetryService.execute(() ->
+                cardUserService.transferMoneyBatch(currentUser, transfers, batchTransferRequestDTO.allOrNothing()));
+        log.info("Пакет переводов пользователя id={} выполнен, отклонено {}", currentUser.getId(), failures.size());
+
+        return mapToBatchDTO(batchTransferRequestDTO.transfers(), failures);
     }
 
     /**
@@ -121,8 +201,14 @@ public class CardApiService {
     /**
      * Возвращает список всех карт с фильтрацией и пагинацией (для админа).
      *
+     * Если передан курсор, выполняется выборка по ключу, как в {@link #getMyCards}.
+     * В режиме {@link TotalMode#NONE} запрос количества не выполняется, а в режиме {@link TotalMode#ESTIMATE}
+     * для выборки без фильтров возвращается оценка по статистике планировщика.
+     *
      * @param page           номер страницы
      * @param size           размер страницы
+     * @param cursor         курсор следующей страницы, пустая строка для первой страницы или {@code null} для пагинации по номеру
+     * @param total          режим вычисления общего количества карт
      * @param userLogin      фильтр по логину пользователя
      * @param expiryDateFrom фильтр по дате окончания от
      * @param expiryDateTo   фильтр по дате окончания до
@@ -133,29 +219,44 @@ public class CardApiService {
      * @return страничный список DTO карт
      */
     @Transactional(readOnly = true)
-    public PagedResponseDTO<CardResponseDTO> getAllCards(Integer page, Integer size, String userLogin,
+    public PagedResponseDTO<CardResponseDTO> getAllCards(Integer page, Integer size, String cursor, TotalMode total, String userLogin,
                                                          LocalDate expiryDateFrom, LocalDate expiryDateTo,
                                                          CardStatus status, BigDecimal balanceFrom,
                                                          BigDecimal balanceTo, Boolean isRequestBlock) {
         log.info("Админ запрашивает список всех карт");
         Specification<Card> specification = getSpecification(null, userLogin, expiryDateFrom, expiryDateTo,
                 status, balanceFrom, balanceTo, isRequestBlock);
+        if (cursor != null) {
+            List<CardSummary> cards = cardAdminService.getAllAfter(specification, PageCursor.decode(cursor), size + 1);
+            log.info("Найдено {} карт по курсору", cards.size());
+
+            return mapToCursorDTO(cards, size);
+        }
         Pageable pageable = PageRequest.of(page, size);
+        boolean filtered = Stream.of(userLogin, expiryDateFrom, expiryDateTo, status, balanceFrom, balanceTo, isRequestBlock)
+                .anyMatch(Objects::nonNull);
+        if (total == TotalMode.NONE || (total == TotalMode.ESTIMATE && !filtered)) {
+            Slice<CardSummary> cards = cardAdminService.getAllSlice(specification, pageable);
+            Long totalElements = total == TotalMode.ESTIMATE ? cardAdminService.estimateCount() : null;
+            log.info("Найдено {} карт, оценка общего количества {}", cards.getNumberOfElements(), totalElements);
+
+            return mapToPagedDTO(cards, totalElements);
+        }
 
-        Page<Card> cards = cardAdminService.getAll(specification, pageable);
+        Page<CardSummary> cards = cardAdminService.getAll(specification, pageable);
         log.info("Найдено {} карт", cards.getTotalElements());
 
-        return mapToPagedDTO(cards);
+        return mapToPagedDTO(cards, cards.getTotalElements());
 
     }
 
     /**
      * Создает новую карту для пользователя (для админа).
+     * Вставка выполняется в транзакциях {@link CardAdminService#create}, повторяемых при совпадении номера.
      *
      * @param requestDTO DTO с данными о владельце карты
      * @return DTO созданной карты
      */
-    @Transactional
     public CardResponseDTO createNewCard(NewCardRequestDTO requestDTO) {
         log.info("Админ создает карту для пользователя id={}", requestDTO.ownerId());
         Card card = cardAdminService.create(requestDTO.ownerId());
@@ -164,6 +265,25 @@ public class CardApiService {
         return mapToDTO(card);
     }
 
+    /**
+     * Создает пакет карт для нескольких пользователей (для админа).
+     * Повторяющиеся ID пользователей объединяются.
+     *
+     * @param requestDTO DTO с владельцами и количеством карт для каждого
+     * @return список созданных карт
+     */
+    public List<CardResponseDTO> createNewCards(BatchNewCardRequestDTO requestDTO) {
+        Map<Long, Integer> cardsByOwner = requestDTO.owners().stream()
+                .collect(Collectors.toMap(OwnerCardsRequestDTO::ownerId, OwnerCardsRequestDTO::count, Integer::sum, LinkedHashMap::new));
+        log.info("Админ создает пакет карт для {} пользователей", cardsByOwner.size());
+        List<Card> cards = cardAdminService.createBatch(cardsByOwner);
+        log.info("Пакет из {} карт успешно создан", cards.size());
+
+        return cards.stream()
+                .map(this::mapToDTO)
+                .toList();
+    }
+
     /**
      * Блокирует карту по ID (для админа).
      *
@@ -179,6 +299,20 @@ public class CardApiService {
         return new MessageResponseDTO("Карта успешно заблокирована");
     }
 
+    /**
+     * Изменяет количество полос баланса карты (для админа).
+     *
+     * @param cardStripesRequestDTO DTO с ID карты и количеством полос
+     * @return сообщение об успешном изменении
+     */
+    public MessageResponseDTO setBalanceStripes(CardStripesRequestDTO cardStripesRequestDTO) {
+        log.info("Админ изменяет количество полос баланса карты id={}", cardStripesRequestDTO.cardId());
+        cardAdminService.setBalanceStripes(cardStripesRequestDTO.cardId(), cardStripesRequestDTO.stripes());
+        log.info("Количество полос баланса карты id={} успешно изменено", cardStripesRequestDTO.cardId());
+
+        return new MessageResponseDTO("Количество полос баланса карты успешно изменено");
+    }
+
     /**
      * Активирует карту по ID (для админа).
      *
@@ -209,6 +343,13 @@ public class CardApiService {
         return new MessageResponseDTO("Карта успешно удалена");
     }
 
+    private String transferMoney(User currentUser, TransferRequestDTO transferRequestDTO) {
+        cardUserService.transferMoney(currentUser, transferRequestDTO.cardIdFrom(),
+                transferRequestDTO.cardIdTo(), transferRequestDTO.amount());
+
+        return TRANSFER_SUCCESS_MESSAGE;
+    }
+
     private Specification<Card> getSpecification(User currentUser, String userLogin, LocalDate expiryDateFrom, LocalDate expiryDateTo,
                                                  CardStatus status, BigDecimal balanceFrom,
                                                  BigDecimal balanceTo, Boolean isRequestBlock) {
@@ -225,12 +366,23 @@ public class CardApiService {
         );
     }
 
-    private PagedResponseDTO<CardResponseDTO> mapToPagedDTO(Page<Card> cards) {
+    private PagedResponseDTO<CardResponseDTO> mapToPagedDTO(Slice<CardSummary> cards, Long totalElements) {
+        List<CardResponseDTO> dtos = cards.stream()
+                .map(this::mapToDTO)
+                .toList();
+
+        return new PagedResponseDTO<>(dtos, cards.getNumber(), cards.getSize(), totalElements, cards.hasNext(), null);
+    }
+
+    private PagedResponseDTO<CardResponseDTO> mapToCursorDTO(List<CardSummary> cards, int size) {
+        boolean hasNext = cards.size() > size;
         List<CardResponseDTO> dtos = cards.stream()
+                .limit(size)
                 .map(this::mapToDTO)
                 .toList();
+        String nextCursor = hasNext ? PageCursor.encode(dtos.get(dtos.size() - 1).id()) : null;
 
-        return new PagedResponseDTO<>(dtos, cards.getNumber(), cards.getSize(), cards.getTotalElements());
+        return new PagedResponseDTO<>(dtos, 0, size, null, hasNext, nextCursor);
     }
 
     private CardResponseDTO mapToDTO(Card card) {
@@ -238,8 +390,26 @@ public class CardApiService {
         return new CardResponseDTO(card.getId(), CardUtil.maskingNumber(card.getCardNumber()), card.getOwner().getLogin(), card.getExpiryDate(), card.getCardStatus());
     }
 
-    private BalanceResponseDTO mapToBalanceDTO(CardBalance cardBalance) {
+    private CardResponseDTO mapToDTO(CardSummary card) {
+
+        return new CardResponseDTO(card.id(), CardUtil.maskingNumber(card.cardLast4()), card.ownerLogin(), card.expiryDate(), card.cardStatus());
+    }
+
+    private BatchTransferResponseDTO mapToBatchDTO(List<TransferRequestDTO> transfers, Map<Integer, String> failures) {
+        List<TransferResultDTO> results = IntStream.range(0, transfers.size())
+                .mapToObj(i -> {
+                    TransferRequestDTO dto = transfers.get(i);
+                    String failure = failures.get(i);
+                    return new TransferResultDTO(i, dto.cardIdFrom(), dto.cardIdTo(), dto.amount(), failure == null,
+                            failure == null ? TRANSFER_SUCCESS_MESSAGE : failure);
+                })
+                .toList();
+
+        return new BatchTransferResponseDTO(transfers.size() - failures.size(), failures.size(), results);
+    }
+
+    private BalanceResponseDTO mapToBalanceDTO(BigDecimal balance) {
 
-        return new BalanceResponseDTO(cardBalance.getBalance());
+        return new BalanceResponseDTO(balance);
     }
 }
@@ -0,0 +1,146 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.projection.CardNumberHash;
+import com.example.bankcards.util.BlindIndexer;
+import com.example.bankcards.util.BloomFilter;
+import com.example.bankcards.util.CardUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.List;
+
+/**
+ * Выдает номера новых карт.
+ * Номер состоит из BIN из настроенного диапазона, случайного номера счета и контрольной цифры
+ * по алгоритму Луна. Случайные числа берутся из генератора DRBG, отдельного для каждого потока
+ * и периодически пересеваемого, поэтому потоки не конкурируют за общий генератор.
+ * Выданные номера учитываются в фильтре Блума по их слепым индексам: фильтр заполняется
+ * из таблицы карт после старта приложения, и занятый номер отбрасывается до вставки в базу.
+ * Уникальный индекс слепого индекса в базе остается окончательной проверкой,
+ * например для номеров, выданных другими экземплярами приложения.
+ */
+@Service
+@Slf4j
+public class CardNumberAllocator {
+
+    private static final int MAX_ATTEMPTS = 100;
+
+    private final BlindIndexer blindIndexer;
+    private final CardRepository cardRepository;
+    private final long binStart;
+    private final long binEnd;
+    private final int binLength;
+    private final long accountBound;
+    private final int accountLength;
+    private final int reseedInterval;
+    private final BloomFilter issued;
+    private final ThreadLocal<ThreadRandom> randoms = ThreadLocal.withInitial(ThreadRandom::new);
+
+    public CardNumberAllocator(BlindIndexer blindIndexer,
+                               CardRepository cardRepository,
+                               @Value("${card.number.bin_start}") String binStart,
+                               @Value("${card.number.bin_end}") String binEnd,
+                               @Value("${card.number.length}") int length,
+                               @Value("${card.number.expected_cards}") long expectedCards,
+                               @Value("${card.number.false_positive_rate}") double falsePositiveRate,
+                               @Value("${card.number.reseed_interval}") int reseedInterval) {
+        if (binStart.length() != binEnd.length() || binStart.compareTo(binEnd) > 0) {
+            throw new IllegalArgumentException("Некорректный диапазон BIN: " + binStart + "-" + binEnd);
+        }
+        this.blindIndexer = blindIndexer;
+        this.cardRepository = cardRepository;
+        this.binStart = Long.parseLong(binStart);
+        this.binEnd = Long.parseLong(binEnd);
+        this.binLength = binStart.length();
+        this.accountLength = length - binLength - 1;
+        this.accountBound = (long) Math.pow(10, accountLength);
+        this.reseedInterval = reseedInterval;
+        this.issued = new BloomFilter(expectedCards, falsePositiveRate);
+    }
+
+    /**
+     * Выдает номер карты, которого нет среди выданных ранее.
+     *
+     * @return номер карты, проходящий проверку по алгоритму Луна
+     * @throws IllegalStateException если свободный номер не найден за допустимое число попыток
+     */
+    public String allocate() {
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            String cardNumber = nextCandidate();
+            if (issued.put(blindIndexer.hash(cardNumber))) {
+                return cardNumber;
+            }
+        }
+        log.error("Не удалось выделить свободный номер карты за {} попыток", MAX_ATTEMPTS);
+        throw new IllegalStateException("Не удалось выделить свободный номер карты");
+    }
+
+    /**
+     * Загружает слепые индексы существующих карт в фильтр выданных номеров.
+     * Карты читаются пачками по возрастанию ID.
+     *
+     * @param batchSize размер пачки
+     * @return количество загруженных номеров
+     */
+    public int warmUp(int batchSize) {
+        int total = 0;
+        long afterId = 0;
+        List<CardNumberHash> hashes;
+        do {
+            hashes = cardRepository.findCardNumberHashes(afterId, Limit.of(batchSize));
+            for (CardNumberHash hash : hashes) {
+                issued.put(hash.cardNumberHash());
+                afterId = hash.id();
+            }
+            total += hashes.size();
+        } while (hashes.size() == batchSize);
+        log.debug("В фильтр выданных номеров загружено {} номеров карт", total);
+
+        return total;
+    }
+
+    private String nextCandidate() {
+        SecureRandom random = randoms.get().next();
+        long bin = binStart + random.nextLong(binEnd - binStart + 1);
+        StringBuilder builder = new StringBuilder();
+        appendPadded(builder, bin, binLength);
+        if (accountLength > 0) {
+            appendPadded(builder, random.nextLong(accountBound), accountLength);
+        }
+
+        return builder.append(CardUtil.luhnCheckDigit(builder)).toString();
+    }
+
+    private static void appendPadded(StringBuilder builder, long value, int length) {
+        String digits = String.valueOf(value);
+        builder.append("0".repeat(length - digits.length())).append(digits);
+    }
+
+    private final class ThreadRandom {
+
+        private final SecureRandom random = newRandom();
+        private int used;
+
+        private SecureRandom next() {
+            if (++used >= reseedInterval) {
+                random.reseed();
+                used = 0;
+            }
+
+            return random;
+        }
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Алгоритм DRBG недоступен", e);
+        }
+    }
+}
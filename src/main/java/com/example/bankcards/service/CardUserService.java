@@ -1,21 +1,31 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.CardBalance;
+import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.WrongParameterException;
 import com.example.bankcards.repository.CardBalanceRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferJdbcRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.projection.CardSummary;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Сервис для операций с картами со стороны пользователя.
@@ -29,43 +39,91 @@ public class CardUserService {
 
     private final CardRepository cardRepository;
     private final CardBalanceRepository cardBalanceRepository;
+    private final TransferRepository transferRepository;
+    private final TransferJdbcRepository transferJdbcRepository;
+
+    @Value("${transfer.lock_timeout}")
+    private long lockTimeout;
 
     /**
      * Возвращает список карт пользователя с фильтрацией и пагинацией.
+     * Карты загружаются в виде проекций без номера карты, поэтому дешифрование не выполняется.
      *
      * @param specification спецификация фильтров
      * @param pageable      параметры пагинации
      * @return страница карт пользователя
      */
-    public Page<Card> getMyCards(Specification<Card> specification, Pageable pageable) {
+    public Page<CardSummary> getMyCards(Specification<Card> specification, Pageable pageable) {
         log.info("Запрос карт пользователя");
-        Page<Card> cards = cardRepository.findAll(specification, pageable);
+        Page<CardSummary> cards = cardRepository.findSummaries(specification, pageable);
         log.info("Найдено {} карт", cards.getTotalElements());
 
         return cards;
     }
 
+    /**
+     * Возвращает срез карт пользователя без вычисления общего количества.
+     * Наличие следующей страницы определяется выборкой лишней строки.
+     *
+     * @param specification спецификация фильтров
+     * @param pageable      параметры пагинации
+     * @return срез карт
+     */
+    public Slice<CardSummary> getMyCardsSlice(Specification<Card> specification, Pageable pageable) {
+        log.info("Запрос среза карт пользователя");
+        Slice<CardSummary> cards = cardRepository.findSummarySlice(specification, pageable);
+        log.info("Найдено {} карт", cards.getNumberOfElements());
+
+        return cards;
+    }
+
+    /**
+     * Возвращает карты пользователя с ID больше указанного в порядке возрастания ID.
+     *
+     * @param specification спецификация фильтров
+     * @param afterId       ID последней карты предыдущей страницы или {@code null} для первой страницы
+     * @param limit         максимальное количество карт
+     * @return список карт пользователя
+     */
+    public List<CardSummary> getMyCardsAfter(Specification<Card> specification, Long afterId, int limit) {
+        log.info("Запрос карт пользователя после карты id={}", afterId);
+        List<CardSummary> cards = cardRepository.findSummariesAfter(specification, afterId, limit);
+        log.info("Найдено {} карт", cards.size());
+
+        return cards;
+    }
+
     /**
      * Возвращает баланс карты пользователя.
+     * Баланс складывается из снимка в {@code card_balances} и ещё не учтённых в нём
+     * зачислений из журнала переводов.
      *
      * @param currentUser текущий пользователь
      * @param cardId      ID карты
-     * @return объект с балансом карты
+     * @return доступный баланс карты
      */
-    public CardBalance getCardBalance(User currentUser, Long cardId) {
+    public BigDecimal getCardBalance(User currentUser, Long cardId) {
         log.info("Запрос баланса карты id={} для пользователя id={}", cardId, currentUser.getId());
-        Card card = getCard(currentUser, cardId);
-        if (card.getCardStatus() != CardStatus.ACTIVE) {
-            log.warn("Карта id={} не активна", cardId);
-            throw new WrongParameterException("Карта не активна");
-        }
+        checkActiveCard(currentUser, cardId);
+        BigDecimal balance = cardBalanceRepository.findAvailableBalance(cardId)
+                .orElseThrow(() -> {
+                    log.error("Баланс карты id={} не найден", cardId);
+                    return new WrongParameterException("Баланс карты не найден");
+                });
         log.info("Баланс карты id={} успешно получен", cardId);
 
-        return card.getBalance();
+        return balance;
     }
 
     /**
      * Выполняет перевод средств между картами пользователя.
+     * Строка баланса карты списания блокируется до проверки средств, после чего списание
+     * выполняется условным UPDATE-запросом, проверяющим владельца, статус карты и достаточность
+     * средств с учётом ещё не учтённых зачислений. Зачисление не изменяет баланс карты получателя,
+     * а записывается в журнал {@code transfers} и позже переносится в снимок баланса плановой задачей,
+     * поэтому частые зачисления на одну карту не конкурируют за её строку. Если для карты получателя
+     * включены полосы баланса, зачисление сразу применяется к случайной полосе, а запись журнала
+     * создаётся уже учтённой.
      *
      * @param currentUser   текущий пользователь
      * @param cardIdFrom    ID карты списания
@@ -74,19 +132,79 @@ public class CardUserService {
      */
     public void transferMoney(User currentUser, Long cardIdFrom, Long cardIdTo, BigDecimal amount) {
         log.info("Пользователь id={} переводит средства", currentUser.getId());
-        CardBalance cardBalanceFrom = getCardBalance(currentUser, cardIdFrom);
-        CardBalance cardBalanceTo = getCardBalance(currentUser, cardIdTo);
-
-        if (cardBalanceFrom.getBalance().compareTo(amount) < 0) {
+        checkActiveCard(currentUser, cardIdTo);
+        lockBalances(currentUser, List.of(cardIdFrom));
+        int debited = cardBalanceRepository.debit(cardIdFrom, currentUser.getId(), amount, CardStatus.ACTIVE);
+        if (debited == 0) {
+            getActiveCard(currentUser, cardIdFrom);
             log.warn("Недостаточно средств на карте id={} для перевода", cardIdFrom);
             throw new WrongParameterException("Недостаточно средств на карте списания");
         }
 
-        cardBalanceFrom.setBalance(cardBalanceFrom.getBalance().subtract(amount));
-        cardBalanceTo.setBalance(cardBalanceTo.getBalance().add(amount));
+        boolean striped = cardBalanceRepository.creditStripe(cardIdTo, amount) > 0;
+        Transfer transfer = transferRepository.save(Transfer.builder()
+                .cardFromId(cardIdFrom)
+                .cardToId(cardIdTo)
+                .amount(amount)
+                .settled(striped)
+                .build());
+        log.info("Перевод id={} с карты id={} на карту id={} выполнен успешно", transfer.getId(), cardIdFrom, cardIdTo);
+    }
 
-        cardBalanceRepository.saveAll(List.of(cardBalanceFrom, cardBalanceTo));
-        log.info("Перевод средств с карты id={} на карту id={} выполнен успешно", cardIdFrom, cardIdTo);
+    /**
+     * Выполняет пакет переводов между картами пользователя в одной транзакции.
+     * Принадлежность и статус всех карт пакета проверяются одним запросом, строки балансов
+     * карт списания блокируются в порядке возрастания ID, после чего списания и записи журнала
+     * отправляются в БД пакетными JDBC-запросами. Списания проверяются по балансам на момент
+     * начала пакета: зачисления из этого же пакета становятся доступны только после его завершения.
+     *
+     * @param currentUser  текущий пользователь
+     * @param transfers    переводы пакета
+     * @param allOrNothing если {@code true}, любая ошибка отменяет весь пакет
+     * @return причины ошибок по индексам невыполненных переводов (пусто, если выполнены все)
+     * @throws WrongParameterException если в режиме allOrNothing хотя бы один перевод не может быть выполнен
+     */
+    public Map<Integer, String> transferMoneyBatch(User currentUser, List<Transfer> transfers, boolean allOrNothing) {
+        log.info("Пользователь id={} выполняет пакет из {} переводов", currentUser.getId(), transfers.size());
+        Set<Long> cardIds = new HashSet<>();
+        transfers.forEach(transfer -> {
+            cardIds.add(transfer.getCardFromId());
+            cardIds.add(transfer.getCardToId());
+        });
+        Set<Long> activeCardIds = cardRepository.findIdsByOwnerAndStatus(cardIds, currentUser, CardStatus.ACTIVE);
+
+        Map<Integer, String> failures = new LinkedHashMap<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<Transfer> accepted = new ArrayList<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            Transfer transfer = transfers.get(i);
+            if (activeCardIds.contains(transfer.getCardFromId()) && activeCardIds.contains(transfer.getCardToId())) {
+                indexes.add(i);
+                accepted.add(transfer);
+            } else {
+                failBatchItem(failures, i, "Пользователь не является владельцем карты или карта не активна", allOrNothing);
+            }
+        }
+
+        lockBalances(currentUser, accepted.stream().map(Transfer::getCardFromId).distinct().toList());
+        int[] debited = transferJdbcRepository.debitAll(currentUser.getId(), accepted);
+        List<Transfer> completed = new ArrayList<>();
+        for (int i = 0; i < debited.length; i++) {
+            if (debited[i] == 0) {
+                failBatchItem(failures, indexes.get(i), "Недостаточно средств на карте списания", allOrNothing);
+            } else {
+                completed.add(accepted.get(i));
+            }
+        }
+        int[] striped = transferJdbcRepository.creditStripes(completed);
+        for (int i = 0; i < striped.length; i++) {
+            completed.get(i).setSettled(striped[i] > 0);
+        }
+        transferJdbcRepository.insertAll(completed);
+        log.info("Пакет переводов пользователя id={}: выполнено {}, отклонено {}",
+                currentUser.getId(), completed.size(), failures.size());
+
+        return failures;
     }
 
     /**
@@ -104,6 +222,39 @@ public class CardUserService {
         cardRepository.save(card);
     }
 
+    private void lockBalances(User currentUser, List<Long> cardIds) {
+        if (cardIds.isEmpty()) {
+            return;
+        }
+        cardBalanceRepository.setLockTimeout(String.valueOf(lockTimeout));
+        List<Long> locked = cardBalanceRepository.lockAllInOrder(cardIds, currentUser.getId());
+        log.debug("Заблокированы балансы карт {} для пользователя id={}", locked, currentUser.getId());
+    }
+
+    private void failBatchItem(Map<Integer, String> failures, int index, String reason, boolean allOrNothing) {
+        if (allOrNothing) {
+            log.warn("Пакет переводов отменён: перевод №{} не выполнен ({})", index, reason);
+            throw new WrongParameterException("Перевод №" + index + " не выполнен: " + reason);
+        }
+        failures.put(index, reason);
+    }
+
+    private void checkActiveCard(User currentUser, Long cardId) {
+        if (!cardRepository.existsByIdAndOwnerAndCardStatus(cardId, currentUser, CardStatus.ACTIVE)) {
+            getActiveCard(currentUser, cardId);
+        }
+    }
+
+    private Card getActiveCard(User currentUser, Long cardId) {
+        Card card = getCard(currentUser, cardId);
+        if (card.getCardStatus() != CardStatus.ACTIVE) {
+            log.warn("Карта id={} не активна", cardId);
+            throw new WrongParameterException("Карта не активна");
+        }
+
+        return card;
+    }
+
     private Card getCard(User currentUser, Long cardId) {
         return cardRepository.findByIdAndOwner(cardId, currentUser)
                 .orElseThrow(() -> {
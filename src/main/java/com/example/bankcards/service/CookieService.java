@@ -3,6 +3,7 @@ package com.example.bankcards.service;
 import com.example.bankcards.entity.RefreshToken;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserNotAuthenticatedException;
+import com.example.bankcards.security.AccessTokenCache;
 import com.example.bankcards.security.JwtTokenProvider;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
@@ -34,6 +35,7 @@ public class CookieService {
     private final JwtTokenProvider jwtTokenProvider;
     private final RefreshTokenService refreshTokenService;
     private final UserService userService;
+    private final AccessTokenCache accessTokenCache;
 
     /**
      * Добавляет cookies с access и (опционально) refresh токенами для пользователя.
@@ -60,6 +62,7 @@ public class CookieService {
 
     /**
      * Удаляет cookies пользователя с access и refresh токенами.
+     * Если в запросе есть валидный access токен, он отзывается до истечения срока действия.
      * Если в запросе есть refresh токен, он удаляется из базы данных.
      *
      * @param request  HttpServletRequest с текущими cookies
@@ -68,6 +71,11 @@ public class CookieService {
     public void deleteAuthCookies(HttpServletRequest request, HttpServletResponse response){
         String refreshToken = extractRefreshToken(request);
         log.info("Удаление cookies");
+        String accessToken = extractToken(request, "access_token");
+        if (accessToken != null) {
+            jwtTokenProvider.parseAccessToken(accessToken)
+                    .ifPresent(claims -> accessTokenCache.revoke(accessToken, claims.getExpiration().toInstant()));
+        }
         if (refreshToken != null) {
             String refreshUUID = jwtTokenProvider.extractUUIDRefreshToken(refreshToken);
             refreshTokenService.delete(refreshUUID);
@@ -86,7 +94,6 @@ public class CookieService {
      * @param request  HttpServletRequest с текущими cookies
      * @param response HttpServletResponse для установки новых cookie
      */
-    @Transactional
     public void refreshAuthCookies(HttpServletRequest request, HttpServletResponse response){
         log.info("Обновление cookies пользователя");
         String refreshToken = extractRefreshToken(request);
@@ -123,17 +130,24 @@ public class CookieService {
     }
 
     private String extractRefreshToken(HttpServletRequest request) {
-        Cookie[] cookies = request.getCookies();
-        if (cookies == null) {
+        if (request.getCookies() == null) {
             log.warn("Нет cookies в запросе");
             throw new UserNotAuthenticatedException("Пользователь не аутентифицирован");
         }
 
+        return extractToken(request, "refresh_token");
+    }
+
+    private String extractToken(HttpServletRequest request, String name) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+
         return Arrays.stream(cookies)
-                .filter(cookie -> cookie.getName().equals("refresh_token"))
+                .filter(cookie -> cookie.getName().equals(name))
                 .map(Cookie::getValue)
                 .findFirst()
                 .orElse(null);
-
     }
 }
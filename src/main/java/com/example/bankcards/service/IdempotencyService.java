@@ -0,0 +1,176 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.IdempotencyKey;
+import com.example.bankcards.exception.WrongParameterException;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Сервис для обработки повторных запросов по ключу идемпотентности.
+ * Результаты выполненных запросов хранятся в таблице idempotency_keys и кэшируются в памяти
+ * с ограничением по размеру и времени жизни, поэтому повтор запроса обычно обслуживается без обращения к базе.
+ * Одновременные запросы с одним ключом объединяются: действие выполняет только первый из них,
+ * остальные дожидаются его результата.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionRetryService transactionRetryService;
+    private final Duration ttl;
+    private final Cache<String, StoredResponse> responses;
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              TransactionRetryService transactionRetryService,
+                              @Value("${idempotency.cache_size}") long cacheSize,
+                              @Value("${idempotency.ttl}") long ttl) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionRetryService = transactionRetryService;
+        this.ttl = Duration.ofMillis(ttl);
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(this.ttl)
+                .build();
+    }
+
+    /**
+     * Выполняет действие не более одного раза для пары пользователь и ключ идемпотентности.
+     * Действие выполняется в транзакции вместе с сохранением ключа и повторяется при ошибках
+     * конкурентного доступа. Для уже обработанного ключа возвращается сохранённый результат.
+     *
+     * @param userId         ID пользователя
+     * @param key            ключ идемпотентности из заголовка запроса
+     * @param requestPayload параметры запроса, по которым проверяется повторное использование ключа
+     * @param action         действие, возвращающее сообщение о результате
+     * @return сообщение о результате выполнения действия
+     * @throws WrongParameterException если ключ уже использован для запроса с другими параметрами
+     */
+    public String execute(Long userId, String key, String requestPayload, Supplier<String> action) {
+        String cacheKey = userId + ":" + key;
+        String requestHash = hash(requestPayload);
+
+        StoredResponse cached = responses.getIfPresent(cacheKey);
+        if (cached != null) {
+            log.info("Повторный запрос пользователя id={} с ключом идемпотентности {}", userId, key);
+            return cached.messageFor(requestHash);
+        }
+
+        CompletableFuture<StoredResponse> own = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(cacheKey, own);
+        if (running != null) {
+            log.info("Ожидание выполняющегося запроса пользователя id={} с ключом идемпотентности {}", userId, key);
+            return await(running).messageFor(requestHash);
+        }
+
+        try {
+            StoredResponse response = executeOnce(userId, key, requestHash, action);
+            responses.put(cacheKey, response);
+            own.complete(response);
+
+            return response.messageFor(requestHash);
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, own);
+        }
+    }
+
+    /**
+     * Удаляет ключи идемпотентности, срок хранения которых истек.
+     *
+     * @return количество удалённых ключей
+     */
+    @Transactional
+    public int deleteExpired() {
+
+        return idempotencyKeyRepository.deleteByCreatedAtBefore(Instant.now().minus(ttl));
+    }
+
+    private StoredResponse executeOnce(Long userId, String key, String requestHash, Supplier<String> action) {
+        StoredResponse stored = findStored(userId, key);
+        if (stored != null) {
+            log.info("Ключ идемпотентности {} пользователя id={} уже обработан", key, userId);
+            return stored;
+        }
+        try {
+            return transactionRetryService.execute(() -> {
+                String message = action.get();
+                idempotencyKeyRepository.saveAndFlush(IdempotencyKey.builder()
+                        .userId(userId)
+                        .idempotencyKey(key)
+                        .requestHash(requestHash)
+                        .responseMessage(message)
+                        .build());
+
+                return new StoredResponse(requestHash, message);
+            });
+        } catch (DataIntegrityViolationException e) {
+            StoredResponse concurrent = findStored(userId, key);
+            if (concurrent == null) {
+                throw e;
+            }
+            log.info("Ключ идемпотентности {} пользователя id={} обработан параллельным запросом", key, userId);
+
+            return concurrent;
+        }
+    }
+
+    private StoredResponse findStored(Long userId, String key) {
+
+        return idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, key)
+                .map(k -> new StoredResponse(k.getRequestHash(), k.getResponseMessage()))
+                .orElse(null);
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String hash(String payload) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Алгоритм SHA-256 недоступен", e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, String message) {
+
+        String messageFor(String requestHash) {
+            if (!this.requestHash.equals(requestHash)) {
+                throw new WrongParameterException("Ключ идемпотентности уже использован для запроса с другими параметрами");
+            }
+
+            return message;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Исполнитель хеширования и проверки паролей в отдельном ограниченном пуле потоков.
+ * Количество одновременно выполняемых операций BCrypt ограничено размером пула, а ожидающие
+ * операции — емкостью очереди, поэтому всплеск входов не занимает все процессоры и не вытесняет
+ * обработку остальных запросов. При переполнении очереди операция отклоняется.
+ */
+@Service
+@Slf4j
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public PasswordHashingExecutor(@Value("${auth.hashing.threads}") int threads,
+                                   @Value("${auth.hashing.queue_capacity}") int queueCapacity,
+                                   MeterRegistry meterRegistry) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + counter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Gauge.builder("auth.hashing.queue.size", executor, pool -> pool.getQueue().size())
+                .description("Количество операций с паролями, ожидающих выполнения")
+                .register(meterRegistry);
+        Gauge.builder("auth.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Количество выполняемых операций с паролями")
+                .register(meterRegistry);
+        log.info("Исполнитель операций с паролями запущен, потоков {}, емкость очереди {}", threads, queueCapacity);
+    }
+
+    /**
+     * Выполняет операцию с паролем в пуле и ожидает ее завершения.
+     *
+     * @param task операция с паролем
+     * @param <T>  тип результата
+     * @return результат операции
+     * @throws RejectedExecutionException если очередь операций переполнена
+     */
+    public <T> T execute(Supplier<T> task) {
+        Future<T> future = executor.submit(task::get);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание операции с паролем прервано", e);
+        }
+    }
+
+    /**
+     * Останавливает пул при завершении работы приложения, дожидаясь уже принятых операций.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.projection.IdRange;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Исполнитель плановых задач по диапазонам ID.
+ * Диапазон ID таблицы делится на части, которые обрабатываются параллельно на ограниченном пуле потоков,
+ * каждая часть в собственной транзакции. Количество одновременно обрабатываемых частей не превышает
+ * количества потоков и половины пула соединений с базой данных, чтобы задача не забирала соединения у запросов.
+ * После каждой завершенной части в аренде задачи сохраняется контрольная точка — наибольший ID, до которого
+ * все части обработаны, поэтому после перезапуска задача продолжается с первой необработанной части.
+ * Контрольная точка сохраняется вместе с ключом запуска и используется только запуском с тем же ключом,
+ * иначе диапазон обрабатывается с начала.
+ * Задача выполняется под арендой {@link SchedulerLeaseService}: если аренда потеряна, новые части не запускаются
+ * и контрольная точка не сохраняется, чтобы не пересекаться с экземпляром, захватившим аренду.
+ */
+@Service
+@Slf4j
+public class RangeJobRunner {
+
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final int parallelism;
+    private final ExecutorService workers;
+
+    /**
+     * Обработчик части диапазона ID.
+     */
+    @FunctionalInterface
+    public interface RangeTask {
+
+        /**
+         * Обрабатывает строки с ID от {@code fromId} до {@code toId} включительно.
+         *
+         * @param fromId начало части
+         * @param toId   конец части
+         * @return количество обработанных строк
+         */
+        int process(long fromId, long toId);
+    }
+
+    public RangeJobRunner(SchedulerLeaseService schedulerLeaseService,
+                          DataSource dataSource,
+                          @Value("${scheduler.workers.threads}") int threads) {
+        this.schedulerLeaseService = schedulerLeaseService;
+        int limit = threads;
+        if (dataSource instanceof HikariDataSource hikari) {
+            limit = Math.min(limit, Math.max(1, hikari.getMaximumPoolSize() / 2));
+        }
+        this.parallelism = limit;
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "maintenance-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Исполнитель плановых задач по диапазонам ID запущен, потоков {}", parallelism);
+    }
+
+    /**
+     * Обрабатывает диапазон ID частями, начиная с контрольной точки задачи, если она сохранена.
+     * Если обработка части завершилась ошибкой, новые части не запускаются, уже запущенные дожидаются завершения,
+     * а контрольная точка остается на последней непрерывно обработанной части.
+     * Также задача останавливается, если аренда задачи потеряна, но контрольная точка при этом больше не сохраняется.
+     *
+     * @param jobName   имя задачи, под которым хранится контрольная точка
+     * @param runKey    ключ запуска, при совпадении которого задача продолжается с контрольной точки
+     * @param range     границы ID строк для обработки
+     * @param chunkSize размер части диапазона ID
+     * @param task      обработчик части
+     * @return количество обработанных строк
+     */
+    public long run(String jobName, String runKey, IdRange range, long chunkSize, RangeTask task) {
+        if (range == null || range.minId() == null) {
+            return 0;
+        }
+        long start = range.minId();
+        Long checkpoint = schedulerLeaseService.findCheckpoint(jobName, runKey);
+        if (checkpoint != null && checkpoint >= start) {
+            log.info("Задача {} ({}) продолжается с контрольной точки id={}", jobName, runKey, checkpoint);
+            start = checkpoint + 1;
+        }
+        long maxId = range.maxId();
+        CompletionService<RangeResult> completion = new ExecutorCompletionService<>(workers);
+        TreeMap<Long, Long> completed = new TreeMap<>();
+        long watermark = start - 1;
+        long next = start;
+        int inFlight = 0;
+        long total = 0;
+        RuntimeException failure = null;
+        boolean leaseLost = false;
+        while ((failure == null && !leaseLost && next <= maxId) || inFlight > 0) {
+            while (failure == null && !leaseLost && next <= maxId && inFlight < parallelism) {
+                if (!schedulerLeaseService.holdsLease(jobName)) {
+                    leaseLost = true;
+                    break;
+                }
+                long fromId = next;
+                long toId = Math.min(maxId, fromId + chunkSize - 1);
+                completion.submit(() -> new RangeResult(fromId, toId, task.process(fromId, toId)));
+                next = toId + 1;
+                inFlight++;
+            }
+            if (inFlight == 0) {
+                break;
+            }
+            try {
+                RangeResult result = completion.take().get();
+                inFlight--;
+                total += result.rows();
+                completed.put(result.fromId(), result.toId());
+                long advanced = advance(completed, watermark);
+                if (advanced != watermark) {
+                    watermark = advanced;
+                    if (!leaseLost && !schedulerLeaseService.saveCheckpoint(jobName, runKey, watermark)) {
+                        leaseLost = true;
+                    }
+                }
+            } catch (ExecutionException e) {
+                inFlight--;
+                failure = e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+                log.warn("Ошибка обработки части задачи {}, контрольная точка id={}", jobName, watermark);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ожидание выполнения задачи " + jobName + " прервано", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        if (leaseLost) {
+            log.warn("Аренда задачи {} потеряна, обработка остановлена на id={}", jobName, watermark);
+            throw new IllegalStateException("Аренда задачи " + jobName + " потеряна");
+        }
+        schedulerLeaseService.saveCheckpoint(jobName, runKey, null);
+
+        return total;
+    }
+
+    /**
+     * Останавливает потоки при завершении работы приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private static long advance(TreeMap<Long, Long> completed, long watermark) {
+        while (!completed.isEmpty() && completed.firstKey() == watermark + 1) {
+            watermark = completed.pollFirstEntry().getValue();
+        }
+
+        return watermark;
+    }
+
+    private record RangeResult(long fromId, long toId, int rows) {
+    }
+}
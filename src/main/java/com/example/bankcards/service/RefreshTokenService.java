@@ -3,7 +3,11 @@ package com.example.bankcards.service;
 import com.example.bankcards.entity.RefreshToken;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserNotAuthenticatedException;
-import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.repository.RefreshTokenStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,21 +15,35 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.UUID;
 
 /**
  * Сервис для работы с refresh токенами.
  * Предоставляет методы для создания, валидации и удаления refresh токенов пользователей.
+ * Токены хранятся в {@link RefreshTokenStore}, а владелец токена загружается через кэш пользователей.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RefreshTokenService {
 
-    private final RefreshTokenRepository refreshTokenRepository;
+    /**
+     * Имя задачи удаления истекших refresh токенов.
+     */
+    public static final String PURGE_TOKENS_JOB = "delete_expired_tokens";
+
+    private final RefreshTokenStore refreshTokenStore;
+    private final UserService userService;
+    private final MeterRegistry meterRegistry;
+    private final RangeJobRunner rangeJobRunner;
 
     @Value("${jwt.refresh_expiration}")
     private int refreshMaxAge;
+    @Value("${jwt.refresh_purge.chunk_size}")
+    private int purgeChunkSize;
+    @Value("${jwt.refresh_purge.pause}")
+    private long purgePause;
 
     /**
      * Создает новый refresh токен для указанного пользователя.
@@ -39,7 +57,7 @@ public class RefreshTokenService {
         RefreshToken refreshToken = buildRefreshToken(user);
         log.info("Refresh токен создан для пользователя id={}", user.getId());
 
-        return refreshTokenRepository.save(refreshToken);
+        return refreshTokenStore.save(refreshToken);
     }
 
     /**
@@ -48,20 +66,27 @@ public class RefreshTokenService {
      *
      * @param token refresh токен
      * @return пользователь, которому принадлежит токен
-     * @throws UserNotAuthenticatedException если токен не найден или истек
+     * @throws UserNotAuthenticatedException если токен не найден, истек или пользователь удален
      */
-    @Transactional
     public User getUserByToken(String token){
         log.info("Получение пользователя по refresh токену {}", token);
-        RefreshToken refreshToken = refreshTokenRepository.findByToken(token)
+        RefreshToken refreshToken = refreshTokenStore.findByToken(token)
                 .orElseThrow(() -> {
                     log.warn("Refresh токен {} не найден", token);
                     return new UserNotAuthenticatedException("Refresh токен не найден");
                 });
         validate(refreshToken);
-        log.info("Пользователь id={} успешно получен по refresh токену", refreshToken.getUser().getId());
+        Long userId = refreshToken.getUser().getId();
+        User user;
+        try {
+            user = userService.findUserById(userId);
+        } catch (UserNotFoundException e) {
+            log.warn("Владелец refresh токена {} не найден", token);
+            throw new UserNotAuthenticatedException("Пользователь не аутентифицирован");
+        }
+        log.info("Пользователь id={} успешно получен по refresh токену", userId);
 
-        return refreshToken.getUser();
+        return user;
 
     }
 
@@ -70,28 +95,70 @@ public class RefreshTokenService {
      *
      * @param token refresh токен
      */
-    @Transactional
     public void delete(String token){
         log.info("Удаление refresh токена {}", token);
-        refreshTokenRepository.deleteRefreshTokenByToken(token);
+        refreshTokenStore.delete(token);
         log.info("Refresh токен {} удален", token);
     }
 
+    /**
+     * Удаляет все refresh токены пользователя.
+     *
+     * @param userId ID пользователя
+     */
+    public void deleteByUserId(Long userId){
+        log.info("Удаление refresh токенов пользователя id={}", userId);
+        refreshTokenStore.deleteByUserId(userId);
+        log.info("Refresh токены пользователя id={} удалены", userId);
+    }
+
     /**
      * Удаляет все refresh токены, срок действия которых истек до указанного времени.
+     * Границы ID истекших токенов определяются по индексу на expiry_date, после чего токены удаляются
+     * по диапазонам ID размером {@code jwt.refresh_purge.chunk_size} через {@link RangeJobRunner}:
+     * параллельно, каждый диапазон в собственной транзакции и с контрольной точкой,
+     * которая используется только повторным запуском в тот же день по UTC.
+     * После каждого диапазона поток делает паузу {@code jwt.refresh_purge.pause} мс.
+     * Количество удаленных токенов публикуется в метрике {@code refresh_tokens.purged} после каждого диапазона.
      *
      * @param expiration момент времени, до которого удаляются токены
+     * @return количество удаленных токенов
      */
-    public void deleteByExpiration(Instant expiration){
+    public long deleteByExpiration(Instant expiration){
         log.info("Удаление истекших refresh токенов до {}", expiration);
-        refreshTokenRepository.deleteRefreshTokenByExpiryDateBefore(expiration);
-        log.info("Истекшие refresh токены удалены");
+        refreshTokenStore.evictExpired(expiration);
+        Counter purged = meterRegistry.counter("refresh_tokens.purged");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long total = rangeJobRunner.run(PURGE_TOKENS_JOB, expiration.truncatedTo(ChronoUnit.DAYS).toString(),
+                refreshTokenStore.findExpiredIdRange(expiration), purgeChunkSize,
+                (fromId, toId) -> {
+                    int deleted = refreshTokenStore.deleteExpiredRange(expiration, fromId, toId);
+                    purged.increment(deleted);
+                    log.debug("Refresh токены id={}..{}: удалено {} истекших токенов", fromId, toId, deleted);
+                    pause();
+                    return deleted;
+                });
+        sample.stop(meterRegistry.timer("refresh_tokens.purge"));
+        log.info("Удалено {} истекших refresh токенов", total);
+
+        return total;
+    }
+
+    private void pause() {
+        if (purgePause <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(purgePause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     private void validate(RefreshToken refreshToken){
         if (refreshToken.getExpiryDate().isBefore(Instant.now())) {
             log.warn("Refresh токен {} истек", refreshToken.getToken());
-            refreshTokenRepository.deleteRefreshTokenByToken(refreshToken.getToken());
+            refreshTokenStore.delete(refreshToken.getToken());
             throw new UserNotAuthenticatedException("Refresh токен истек");
         }
     }
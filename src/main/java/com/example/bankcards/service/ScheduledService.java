@@ -2,49 +2,154 @@ package com.example.bankcards.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.LocalDate;
 
 /**
  * Сервис для плановых задач (scheduled tasks).
- * Обрабатывает автоматические операции, такие как удаление истекших refresh токенов
- * и обновление статуса просроченных карт.
+ * Обрабатывает автоматические операции, такие как удаление истекших refresh токенов,
+ * обновление статуса просроченных карт, удаление устаревших ключей идемпотентности, перенос
+ * зачислений из журнала переводов и полос балансов в балансы карт, а также заполнение
+ * новых столбцов карт после миграций.
+ * Задачи удаления устаревших данных и обновления статусов карт выполняются только на одном экземпляре
+ * приложения через {@link SchedulerLeaseService}.
  */
 @Service
 @RequiredArgsConstructor
-@Transactional
 @Slf4j
 public class ScheduledService {
 
     private final RefreshTokenService refreshTokenService;
     private final CardAdminService cardAdminService;
+    private final IdempotencyService idempotencyService;
+    private final CardNumberAllocator cardNumberAllocator;
+    private final SchedulerLeaseService schedulerLeaseService;
+
+    @Value("${transfer.settle_batch_size}")
+    private int settleBatchSize;
+    @Value("${transfer.stripes.compact_batch_size}")
+    private int compactBatchSize;
+    @Value("${card.backfill_batch_size}")
+    private int backfillBatchSize;
+    @Value("${card.expire_chunk_size}")
+    private int expireChunkSize;
+
+    /**
+     * Заполняет последние 4 цифры и слепой индекс номера для карт, созданных до появления этих столбцов,
+     * перешифровывает номера карт, зашифрованные ранее через jasypt,
+     * после чего загружает слепые индексы всех карт в фильтр выданных номеров.
+     * Запускается один раз после старта приложения. Заполнение выполняет только экземпляр,
+     * захвативший аренду задачи, а фильтр выданных номеров загружается на каждом экземпляре.
+     * Ошибки каждого шага записываются в журнал и не прерывают запуск приложения:
+     * необработанные карты будут обработаны при следующем запуске.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCardColumns(){
+        try {
+            schedulerLeaseService.runExclusively(CardAdminService.BACKFILL_CARDS_JOB, () -> {
+                int cards = 0;
+                try {
+                    cards = cardAdminService.backfillCardColumns(backfillBatchSize);
+                    if (cards > 0) {
+                        log.info("Столбцы номера заполнены для {} карт", cards);
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Не удалось заполнить столбцы номера карт", e);
+                }
+                int reencrypted = 0;
+                try {
+                    reencrypted = cardAdminService.reencryptLegacyCardNumbers(backfillBatchSize);
+                    if (reencrypted > 0) {
+                        log.info("Номера {} карт перешифрованы в формат AES-GCM", reencrypted);
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Не удалось перешифровать номера карт", e);
+                }
+                return cards + reencrypted;
+            });
+        } catch (RuntimeException e) {
+            log.error("Не удалось выполнить задачу {}", CardAdminService.BACKFILL_CARDS_JOB, e);
+        }
+        try {
+            int issued = cardNumberAllocator.warmUp(backfillBatchSize);
+            log.info("В фильтр выданных номеров загружено {} номеров карт", issued);
+        } catch (RuntimeException e) {
+            log.error("Не удалось загрузить фильтр выданных номеров", e);
+        }
+    }
 
     /**
      * Плановая задача для удаления всех истекших refresh токенов.
-     * Запускается ежедневно в полночь.
+     * Запускается ежедневно в полночь, токены удаляются порциями в отдельных транзакциях.
      */
     @Scheduled(cron = "0 0 0 * * ?")
     public void deleteExpiredTokens(){
-        Instant now = Instant.now();
-        log.info("Запуск задачи удаления истекших refresh токенов");
-        refreshTokenService.deleteByExpiration(now);
-        log.info("Удаление истекших refresh токенов выполнено");
+        schedulerLeaseService.runExclusively(RefreshTokenService.PURGE_TOKENS_JOB, () -> {
+            Instant now = Instant.now();
+            log.info("Запуск задачи удаления истекших refresh токенов");
+            long deleted = refreshTokenService.deleteByExpiration(now);
+            log.info("Удаление истекших refresh токенов выполнено, удалено {}", deleted);
+            return deleted;
+        });
     }
 
     /**
      * Плановая задача для обновления статуса всех просроченных карт на EXPIRED.
-     * Запускается ежедневно в полночь.
+     * Запускается ежедневно в полночь, карты обновляются диапазонами ID в отдельных транзакциях.
      */
     @Scheduled(cron = "0 0 0 * * ?")
     public void updateStatusForExpiredCard(){
-        LocalDate now = LocalDate.now();
-        log.info("Запуск задачи обновления статуса истекших карт на {}", now);
-        cardAdminService.updateForExpiredCard(now);
-        log.info("Обновление статуса истекших карт выполнено");
+        schedulerLeaseService.runExclusively(CardAdminService.EXPIRE_CARDS_JOB, () -> {
+            LocalDate now = LocalDate.now();
+            log.info("Запуск задачи обновления статуса истекших карт на {}", now);
+            long cards = cardAdminService.updateForExpiredCard(now, expireChunkSize);
+            log.info("Обновление статуса истекших карт выполнено, обновлено {}", cards);
+            return cards;
+        });
 
     }
+
+    /**
+     * Плановая задача для удаления ключей идемпотентности, срок хранения которых истек.
+     * Запускается ежечасно.
+     */
+    @Scheduled(cron = "0 0 * * * ?")
+    public void deleteExpiredIdempotencyKeys(){
+        schedulerLeaseService.runExclusively("delete_expired_idempotency_keys", () -> {
+            log.info("Запуск задачи удаления устаревших ключей идемпотентности");
+            int deleted = idempotencyService.deleteExpired();
+            log.info("Удалено {} устаревших ключей идемпотентности", deleted);
+            return deleted;
+        });
+    }
+
+    /**
+     * Плановая задача для переноса неучтённых зачислений из журнала переводов в балансы карт.
+     * Выполняется с фиксированной задержкой, каждая карта обрабатывается в собственной транзакции.
+     */
+    @Scheduled(fixedDelayString = "${transfer.settle_delay}")
+    public void settlePendingCredits(){
+        int cards = cardAdminService.settlePendingCredits(settleBatchSize);
+        if (cards > 0) {
+            log.info("Зачисления из журнала переводов учтены в балансах {} карт", cards);
+        }
+    }
+
+    /**
+     * Плановая задача для переноса зачислений из полос балансов в основные балансы карт.
+     * Выполняется с фиксированной задержкой, каждая карта обрабатывается в собственной транзакции.
+     */
+    @Scheduled(fixedDelayString = "${transfer.stripes.compact_delay}")
+    public void compactBalanceStripes(){
+        int cards = cardAdminService.compactBalanceStripes(compactBatchSize);
+        if (cards > 0) {
+            log.info("Полосы балансов перенесены в основные балансы {} карт", cards);
+        }
+    }
 }
@@ -0,0 +1,195 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.response.job.JobReportResponseDTO;
+import com.example.bankcards.entity.SchedulerLease;
+import com.example.bankcards.repository.SchedulerLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Сервис аренды плановых задач в таблице scheduler_leases.
+ * Позволяет выполнять задачу только на одном экземпляре приложения без внешнего координатора:
+ * экземпляр, которому удалось атомарно захватить просроченную аренду, выполняет задачу,
+ * остальные пропускают запуск. Во время выполнения аренда продлевается в фоне, а если владелец
+ * аварийно остановился, аренда истекает и может быть захвачена другим экземпляром.
+ * После завершения аренда удерживается не менее {@code scheduler.lease.min_hold} мс с момента запуска,
+ * чтобы экземпляры с небольшим расхождением часов не выполнили задачу повторно.
+ * Если продлить аренду не удалось, потому что ее захватил другой экземпляр, она считается потерянной:
+ * задача может проверить это через {@link #holdsLease(String)}, а контрольные точки больше не сохраняются.
+ * Для каждой задачи сохраняются время последнего запуска, длительность и количество обработанных строк.
+ */
+@Service
+@Slf4j
+public class SchedulerLeaseService {
+
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final Duration leaseDuration;
+    private final Duration minHold;
+    private final String owner;
+    private final Map<String, Instant> heldUntil = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService renewal = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "scheduler-lease-renewal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SchedulerLeaseService(SchedulerLeaseRepository schedulerLeaseRepository,
+                                 @Value("${scheduler.lease.duration}") long leaseDuration,
+                                 @Value("${scheduler.lease.min_hold}") long minHold,
+                                 @Value("${scheduler.node_id}") String nodeId) {
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+        this.leaseDuration = Duration.ofMillis(leaseDuration);
+        this.minHold = Duration.ofMillis(minHold);
+        this.owner = (nodeId.isBlank() ? "node" : nodeId) + "-" + UUID.randomUUID().toString().substring(0, 8);
+        log.info("Идентификатор экземпляра для аренды плановых задач {}", owner);
+    }
+
+    /**
+     * Выполняет задачу, если удалось захватить ее аренду.
+     *
+     * @param jobName имя задачи
+     * @param job     задача, возвращающая количество обработанных строк
+     * @return {@code true}, если задача выполнена этим экземпляром
+     */
+    public boolean runExclusively(String jobName, LongSupplier job) {
+        ensureLeaseExists(jobName);
+        Instant startedAt = Instant.now();
+        if (schedulerLeaseRepository.acquire(jobName, owner, startedAt, startedAt.plus(leaseDuration)) == 0) {
+            log.info("Задача {} выполняется или недавно выполнена другим экземпляром, запуск пропущен", jobName);
+            return false;
+        }
+        heldUntil.put(jobName, startedAt.plus(leaseDuration));
+        log.info("Аренда задачи {} захвачена экземпляром {}", jobName, owner);
+        long period = Math.max(leaseDuration.toMillis() / 3, 1);
+        ScheduledFuture<?> heartbeat = renewal.scheduleAtFixedRate(() -> renew(jobName), period, period, TimeUnit.MILLISECONDS);
+        long rows = 0;
+        try {
+            rows = job.getAsLong();
+        } finally {
+            heartbeat.cancel(false);
+            heldUntil.remove(jobName);
+            Instant finishedAt = Instant.now();
+            Instant holdUntil = startedAt.plus(minHold);
+            schedulerLeaseRepository.release(jobName, owner, finishedAt,
+                    holdUntil.isAfter(finishedAt) ? holdUntil : finishedAt,
+                    Duration.between(startedAt, finishedAt).toMillis(), rows);
+            log.info("Аренда задачи {} освобождена экземпляром {}", jobName, owner);
+        }
+
+        return true;
+    }
+
+    /**
+     * Проверяет, что задача выполняется этим экземпляром и его аренда не потеряна и не истекла.
+     *
+     * @param jobName имя задачи
+     * @return {@code true}, если аренда задачи удерживается этим экземпляром
+     */
+    public boolean holdsLease(String jobName) {
+        Instant until = heldUntil.get(jobName);
+        return until != null && Instant.now().isBefore(until);
+    }
+
+    /**
+     * Возвращает контрольную точку задачи, сохраненную запуском с тем же ключом.
+     * Контрольная точка другого запуска не возвращается: строки ниже нее могли измениться с тех пор.
+     *
+     * @param jobName имя задачи
+     * @param runKey  ключ запуска, например дата, на которую выполняется задача
+     * @return наибольший обработанный ID или {@code null}, если контрольная точка этого запуска не сохранена
+     */
+    public Long findCheckpoint(String jobName, String runKey) {
+        return schedulerLeaseRepository.findById(jobName)
+                .filter(lease -> lease.getCheckpointId() != null && Objects.equals(lease.getCheckpointRun(), runKey))
+                .map(SchedulerLease::getCheckpointId)
+                .orElse(null);
+    }
+
+    /**
+     * Сохраняет контрольную точку задачи вместе с ключом запуска,
+     * если аренда задачи удерживается этим экземпляром.
+     *
+     * @param jobName      имя задачи
+     * @param runKey       ключ запуска, которому принадлежит контрольная точка
+     * @param checkpointId наибольший обработанный ID или {@code null}, чтобы сбросить контрольную точку
+     * @return {@code false}, если аренда потеряна и контрольная точка не сохранена
+     */
+    public boolean saveCheckpoint(String jobName, String runKey, Long checkpointId) {
+        return holdsLease(jobName)
+                && schedulerLeaseRepository.saveCheckpoint(jobName, owner, checkpointId,
+                checkpointId == null ? null : runKey) > 0;
+    }
+
+    /**
+     * Возвращает отчет о последних запусках плановых задач.
+     *
+     * @return список отчетов, упорядоченный по имени задачи
+     */
+    public List<JobReportResponseDTO> getReport() {
+        return schedulerLeaseRepository.findAll(Sort.by("jobName")).stream()
+                .map(lease -> new JobReportResponseDTO(
+                        lease.getJobName(),
+                        lease.getOwner(),
+                        lease.getLockedUntil(),
+                        lease.getLastStartedAt(),
+                        lease.getLastFinishedAt(),
+                        lease.getLastDurationMs(),
+                        lease.getLastRows(),
+                        lease.getCheckpointId()))
+                .toList();
+    }
+
+    /**
+     * Останавливает продление аренд при завершении работы приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        renewal.shutdownNow();
+    }
+
+    private void ensureLeaseExists(String jobName) {
+        if (schedulerLeaseRepository.existsById(jobName)) {
+            return;
+        }
+        try {
+            schedulerLeaseRepository.saveAndFlush(SchedulerLease.builder()
+                    .jobName(jobName)
+                    .lockedUntil(Instant.EPOCH)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Аренда задачи {} уже создана другим экземпляром", jobName);
+        }
+    }
+
+    private void renew(String jobName) {
+        try {
+            Instant lockedUntil = Instant.now().plus(leaseDuration);
+            if (schedulerLeaseRepository.renew(jobName, owner, lockedUntil) == 0) {
+                heldUntil.remove(jobName);
+                log.warn("Аренда задачи {} потеряна экземпляром {}", jobName, owner);
+            } else {
+                heldUntil.replace(jobName, lockedUntil);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Не удалось продлить аренду задачи {}", jobName, e);
+        }
+    }
+}
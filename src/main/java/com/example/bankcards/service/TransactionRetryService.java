@@ -0,0 +1,89 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Сервис для выполнения операций в отдельной транзакции с автоматическим повтором.
+ * Повторяет транзакцию при ошибках конкурентного доступа (взаимная блокировка, ошибка сериализации,
+ * превышение времени ожидания блокировки), которые транслируются Spring в {@link ConcurrencyFailureException}.
+ * Вызывать следует вне уже открытой транзакции, иначе повтор будет выполняться в откаченной транзакции.
+ * Количество повторов публикуется метрикой {@code transactions.retries}.
+ */
+@Service
+@Slf4j
+public class TransactionRetryService {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long retryBackoff;
+    private final Counter retries;
+
+    public TransactionRetryService(PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${transfer.max_attempts}") int maxAttempts,
+                                   @Value("${transfer.retry_backoff}") long retryBackoff) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retries = meterRegistry.counter("transactions.retries");
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+    }
+
+    /**
+     * Выполняет действие в транзакции, повторяя его при ошибках конкурентного доступа.
+     *
+     * @param action действие, выполняемое в транзакции
+     * @param <T>    тип результата
+     * @return результат действия
+     * @throws ConcurrencyFailureException если все попытки завершились ошибкой конкурентного доступа
+     */
+    public <T> T execute(Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Транзакция не выполнена после {} попыток: {}", attempt, e.getMessage());
+                    throw e;
+                }
+                retries.increment();
+                log.warn("Ошибка конкурентного доступа, повтор транзакции (попытка {} из {}): {}",
+                        attempt + 1, maxAttempts, e.getMessage());
+                pause(attempt);
+            }
+        }
+    }
+
+    /**
+     * Выполняет действие без результата в транзакции, повторяя его при ошибках конкурентного доступа.
+     *
+     * @param action действие, выполняемое в транзакции
+     */
+    public void execute(Runnable action) {
+        execute(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private void pause(int attempt) {
+        if (retryBackoff <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(retryBackoff * attempt + ThreadLocalRandom.current().nextLong(retryBackoff));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Повтор транзакции прерван", e);
+        }
+    }
+}
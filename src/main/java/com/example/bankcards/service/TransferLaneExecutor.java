@@ -0,0 +1,99 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Исполнитель переводов по однопоточным очередям (дорожкам).
+ * Перевод направляется в дорожку по хешу ID карты списания, поэтому списания с одной карты
+ * выполняются последовательно и не ожидают друг друга на блокировках строк в базе,
+ * а переводы с разных карт выполняются параллельно.
+ * Если исполнитель выключен, переводы выполняются в вызывающем потоке.
+ */
+@Service
+@Slf4j
+public class TransferLaneExecutor {
+
+    private final boolean enabled;
+    private final ThreadPoolExecutor[] lanes;
+
+    public TransferLaneExecutor(@Value("${transfer.lanes.enabled}") boolean enabled,
+                                @Value("${transfer.lanes.count}") int laneCount,
+                                @Value("${transfer.lanes.queue_capacity}") int queueCapacity,
+                                MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.lanes = new ThreadPoolExecutor[enabled ? laneCount : 0];
+        for (int i = 0; i < lanes.length; i++) {
+            String threadName = "transfer-lane-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            Gauge.builder("transfer.lane.queue.size", lanes[i], lane -> lane.getQueue().size())
+                    .description("Количество переводов, ожидающих выполнения в дорожке")
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+        if (enabled) {
+            log.info("Исполнитель переводов по дорожкам включен, количество дорожек {}", laneCount);
+        }
+    }
+
+    /**
+     * Выполняет перевод в дорожке карты списания и ожидает его завершения.
+     *
+     * @param cardId ID карты списания
+     * @param task   перевод
+     * @param <T>    тип результата
+     * @return результат перевода
+     * @throws RejectedExecutionException если очередь дорожки переполнена
+     */
+    public <T> T execute(Long cardId, Supplier<T> task) {
+        if (!enabled) {
+            return task.get();
+        }
+        Future<T> future = lanes[Math.floorMod(Long.hashCode(cardId), lanes.length)].submit(task::get);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание выполнения перевода прервано", e);
+        }
+    }
+
+    /**
+     * Останавливает дорожки при завершении работы приложения, дожидаясь уже принятых переводов.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+}
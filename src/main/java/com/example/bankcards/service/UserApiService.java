@@ -1,16 +1,20 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.request.TotalMode;
 import com.example.bankcards.dto.response.PagedResponseDTO;
 import com.example.bankcards.dto.response.user.UserResponseDTO;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.repository.TableStatisticsRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.repository.specification.UserSpecification;
+import com.example.bankcards.security.AccessTokenCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,6 +33,10 @@ import java.util.List;
 public class UserApiService {
 
     private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final AccessTokenCache accessTokenCache;
+    private final RefreshTokenService refreshTokenService;
+    private final TableStatisticsRepository tableStatisticsRepository;
 
     /**
      * Получает пользователя по его идентификатору.
@@ -52,27 +60,37 @@ public class UserApiService {
 
     /**
      * Удаляет пользователя по его идентификатору.
+     * Пользователь удаляется из кэша, его access токены отзываются, а refresh токены удаляются,
+     * поэтому на этом экземпляре приложения он перестает проходить аутентификацию сразу после удаления.
+     * Кэши и отзыв токенов локальны для экземпляра, поэтому на других экземплярах пользователь
+     * перестает проходить аутентификацию после истечения срока хранения записей в их кэшах.
      *
      * @param userId идентификатор пользователя
      */
     public void deleteUser(Long userId) {
         log.info("Удаление пользователя id={}", userId);
         userRepository.deleteById(userId);
+        userCache.evict(userId);
+        accessTokenCache.revokeUser(userId);
+        refreshTokenService.deleteByUserId(userId);
         log.info("Пользователь id={} успешно удален", userId);
     }
 
     /**
      * Получает список пользователей с возможностью фильтрации и пагинации.
+     * В режиме {@link TotalMode#NONE} запрос количества не выполняется, а в режиме {@link TotalMode#ESTIMATE}
+     * для выборки без фильтров возвращается оценка по статистике планировщика.
      *
      * @param page          номер страницы (от 0)
      * @param size          количество элементов на странице
+     * @param total         режим вычисления общего количества пользователей
      * @param login         фильтр по логину пользователя (опционально)
      * @param createdAtFrom фильтр по дате создания с (опционально)
      * @param createdAtTo   фильтр по дате создания по (опционально)
      * @return PagedResponseDTO с DTO пользователей
      */
     @Transactional(readOnly = true)
-    public PagedResponseDTO<UserResponseDTO> findAllUsers(Integer page, Integer size, String login, LocalDate createdAtFrom, LocalDate createdAtTo) {
+    public PagedResponseDTO<UserResponseDTO> findAllUsers(Integer page, Integer size, TotalMode total, String login, LocalDate createdAtFrom, LocalDate createdAtTo) {
         log.info("Получение списка пользователей");
         Specification<User> specification = Specification.allOf(
                 UserSpecification.hasLogin(login),
@@ -80,19 +98,29 @@ public class UserApiService {
                 UserSpecification.createdAtBefore(createdAtTo)
         );
         Pageable pageable = PageRequest.of(page, size);
+        boolean filtered = login != null || createdAtFrom != null || createdAtTo != null;
+        if (total == TotalMode.NONE || (total == TotalMode.ESTIMATE && !filtered)) {
+            Slice<User> users = userRepository.findSlice(specification, pageable);
+            Long totalElements = total == TotalMode.ESTIMATE
+                    ? tableStatisticsRepository.estimateRowCount("users").orElseGet(userRepository::count)
+                    : null;
+            log.info("Найдено {} пользователей, оценка общего количества {}", users.getNumberOfElements(), totalElements);
+
+            return mapToPagedDTO(users, totalElements);
+        }
 
         Page<User> users = userRepository.findAll(specification, pageable);
         log.info("Найдено {} пользователей", users.getTotalElements());
 
-        return mapToPagedDTO(users);
+        return mapToPagedDTO(users, users.getTotalElements());
     }
 
-    private PagedResponseDTO<UserResponseDTO> mapToPagedDTO(Page<User> users) {
+    private PagedResponseDTO<UserResponseDTO> mapToPagedDTO(Slice<User> users, Long totalElements) {
         List<UserResponseDTO> usersDTO = users.stream()
                 .map(this::mapToDTO)
                 .toList();
 
-        return new PagedResponseDTO<>(usersDTO, users.getNumber(), users.getSize(), users.getTotalElements());
+        return new PagedResponseDTO<>(usersDTO, users.getNumber(), users.getSize(), totalElements, users.hasNext(), null);
     }
 
     private UserResponseDTO mapToDTO(User user) {
@@ -0,0 +1,138 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.UserRole;
+import com.example.bankcards.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Кэш пользователей по логину и по ID.
+ * Найденные пользователи хранятся ограниченное время с ограничением по размеру,
+ * поэтому аутентификация и вход не обращаются к базе данных для каждого запроса.
+ * Отсутствующие пользователи не кэшируются. Статистика кэшей публикуется в метриках {@code cache.*}
+ * с тегами {@code cache=users_by_login} и {@code cache=users_by_id}.
+ * В кэше хранятся неизменяемые снимки пользователей, а каждый вызов возвращает новый экземпляр,
+ * не связанный с контекстом персистентности, поэтому управляемая сущность и ее ленивые коллекции
+ * не разделяются между потоками. Если удаление из кэша выполняется внутри транзакции,
+ * пользователь повторно удаляется после ее фиксации, чтобы параллельное чтение не вернуло в кэш старые данные.
+ * Удаление из кэша действует только на текущем экземпляре приложения, на остальных запись истекает
+ * через {@code user.cache.ttl}.
+ */
+@Component
+@Slf4j
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final Cache<String, Snapshot> byLogin;
+    private final Cache<Long, Snapshot> byId;
+
+    public UserCache(UserRepository userRepository,
+                     @Value("${user.cache.size}") long size,
+                     @Value("${user.cache.ttl}") long ttl,
+                     MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.byLogin = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .recordStats()
+                .build();
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byLogin, "users_by_login");
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users_by_id");
+    }
+
+    /**
+     * Находит пользователя по логину без учета регистра.
+     *
+     * @param login логин пользователя
+     * @return пользователь или пустой {@link Optional}, если пользователь не найден
+     */
+    public Optional<User> findByLogin(String login) {
+        Snapshot cached = byLogin.getIfPresent(login.toLowerCase(Locale.ROOT));
+        if (cached != null) {
+            return Optional.of(cached.toUser());
+        }
+
+        return userRepository.findByLoginIgnoreCase(login)
+                .map(this::put);
+    }
+
+    /**
+     * Находит пользователя по ID.
+     *
+     * @param userId ID пользователя
+     * @return пользователь или пустой {@link Optional}, если пользователь не найден
+     */
+    public Optional<User> findById(Long userId) {
+        Snapshot cached = byId.getIfPresent(userId);
+        if (cached != null) {
+            return Optional.of(cached.toUser());
+        }
+
+        return userRepository.findById(userId)
+                .map(this::put);
+    }
+
+    /**
+     * Удаляет пользователя из кэша. Вызывается при удалении пользователя или изменении его данных.
+     * Внутри транзакции пользователь дополнительно удаляется после ее фиксации.
+     *
+     * @param userId ID пользователя
+     */
+    public void evict(Long userId) {
+        invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(userId);
+                }
+            });
+        }
+    }
+
+    private void invalidate(Long userId) {
+        byId.invalidate(userId);
+        byLogin.asMap().values().removeIf(user -> userId.equals(user.id()));
+        log.debug("Пользователь id={} удален из кэша", userId);
+    }
+
+    private User put(User user) {
+        Snapshot snapshot = new Snapshot(user.getId(), user.getLogin(), user.getPasswordHash(), user.getRole(), user.getCreatedAt());
+        byLogin.put(user.getLogin().toLowerCase(Locale.ROOT), snapshot);
+        byId.put(user.getId(), snapshot);
+
+        return snapshot.toUser();
+    }
+
+    private record Snapshot(Long id, String login, String passwordHash, UserRole role, OffsetDateTime createdAt) {
+
+        private User toUser() {
+
+            return User.builder()
+                    .id(id)
+                    .login(login)
+                    .passwordHash(passwordHash)
+                    .role(role)
+                    .createdAt(createdAt)
+                    .build();
+        }
+    }
+}
@@ -7,10 +7,17 @@ import com.example.bankcards.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Сервис для работы с сущностью User.
- * Предоставляет методы поиска пользователей по ID или логину и сохранения нового пользователя.
+ * Предоставляет методы поиска пользователей по ID (в том числе нескольких сразу) или логину
+ * и сохранения нового пользователя. Поиск одного пользователя выполняется через {@link UserCache}.
  */
 @Service
 @RequiredArgsConstructor
@@ -18,6 +25,7 @@ import org.springframework.stereotype.Service;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final UserCache userCache;
 
     /**
      * Находит пользователя по идентификатору.
@@ -28,7 +36,7 @@ public class UserService {
      */
     public User findUserById(Long userId) {
         log.info("Поиск пользователя по id={}", userId);
-        User user =  userRepository.findById(userId)
+        User user =  userCache.findById(userId)
                 .orElseThrow(() -> {
                     log.warn("Пользователь с id={} не найден", userId);
                     return new UserNotFoundException("Пользователь не найден");
@@ -38,6 +46,25 @@ public class UserService {
         return user;
     }
 
+    /**
+     * Находит пользователей по идентификаторам одним запросом.
+     *
+     * @param userIds идентификаторы пользователей
+     * @return пользователи по их ID
+     * @throws UserNotFoundException если хотя бы один пользователь не найден
+     */
+    public Map<Long, User> findUsersByIds(Collection<Long> userIds) {
+        log.info("Поиск {} пользователей по id", userIds.size());
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        if (users.size() != userIds.size()) {
+            log.warn("Не найдено {} пользователей из {}", userIds.size() - users.size(), userIds.size());
+            throw new UserNotFoundException("Пользователь не найден");
+        }
+
+        return users;
+    }
+
     /**
      * Находит пользователя по логину.
      *
@@ -47,7 +74,7 @@ public class UserService {
      */
     public User findUserByLogin(String login) {
         log.info("Поиск пользователя по логину={}", login);
-        User user =  userRepository.findByLoginIgnoreCase(login)
+        User user =  userCache.findByLogin(login)
                 .orElseThrow(() -> {
                     log.warn("Пользователь с логином={} не найден", login);
                     return new WrongParameterException("Неверный логин или пароль");
@@ -76,6 +103,18 @@ public class UserService {
         return saveUser;
     }
 
+    /**
+     * Обновляет хеш пароля пользователя и удаляет пользователя из кэша.
+     *
+     * @param userId       ID пользователя
+     * @param passwordHash новый хеш пароля
+     */
+    @Transactional
+    public void updatePasswordHash(Long userId, String passwordHash) {
+        userRepository.updatePasswordHash(userId, passwordHash);
+        userCache.evict(userId);
+    }
+
     private boolean existsUserByLogin(String login) {
 
         return userRepository.existsUserByLogin(login);
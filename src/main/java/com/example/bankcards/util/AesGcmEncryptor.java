@@ -0,0 +1,121 @@
+package com.example.bankcards.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jasypt.encryption.StringEncryptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Шифратор строк на основе AES-GCM.
+ * Ключ шифрования выводится из секрета через PBKDF2 один раз при создании компонента,
+ * поэтому шифрование и дешифрование отдельных значений не выполняют дорогую деривацию ключа.
+ * Каждое значение шифруется со случайным IV и сохраняется с префиксом версии {@code v1:}.
+ * Значения без префикса считаются зашифрованными ранее через jasypt и дешифруются им.
+ * Такие значения не перезаписываются при сохранении неизмененной сущности и перешифровываются
+ * отдельным проходом {@code CardAdminService.reencryptLegacyCardNumbers}.
+ */
+@Component
+@Slf4j
+public class AesGcmEncryptor {
+
+    private static final String VERSION_PREFIX = "v1:";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+
+    private final SecretKeySpec key;
+    private final StringEncryptor legacyEncryptor;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(AesGcmEncryptor::newCipher);
+
+    public AesGcmEncryptor(@Value("${encryption.secret}") String secret,
+                           @Value("${encryption.salt}") String salt,
+                           @Value("${encryption.iterations}") int iterations,
+                           StringEncryptor legacyEncryptor) {
+        this.key = new SecretKeySpec(deriveKey(secret, salt, iterations), "AES");
+        this.legacyEncryptor = legacyEncryptor;
+    }
+
+    /**
+     * Шифрует строку.
+     *
+     * @param value исходная строка
+     * @return зашифрованное значение с префиксом версии
+     */
+    public String encrypt(String value) {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+            byte[] encrypted = cipher.doFinal(value.getBytes(StandardCharsets.UTF_8));
+
+            return VERSION_PREFIX + Base64.getEncoder().encodeToString(ByteBuffer.allocate(IV_LENGTH + encrypted.length)
+                    .put(iv)
+                    .put(encrypted)
+                    .array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Ошибка шифрования значения", e);
+        }
+    }
+
+    /**
+     * Дешифрует строку, зашифрованную этим шифратором или ранее через jasypt.
+     *
+     * @param value зашифрованное значение
+     * @return исходная строка
+     */
+    public String decrypt(String value) {
+        if (!value.startsWith(VERSION_PREFIX)) {
+            return legacyEncryptor.decrypt(value);
+        }
+        byte[] data = Base64.getDecoder().decode(value.substring(VERSION_PREFIX.length()));
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, data, 0, IV_LENGTH));
+
+            return new String(cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Ошибка дешифрования значения", e);
+        }
+    }
+
+    /**
+     * Выводит 256-битный ключ из секрета через PBKDF2WithHmacSHA256.
+     *
+     * @param secret     секрет
+     * @param salt       соль
+     * @param iterations количество итераций
+     * @return байты ключа
+     */
+    static byte[] deriveKey(String secret, String salt, int iterations) {
+        try {
+            PBEKeySpec spec = new PBEKeySpec(secret.toCharArray(), salt.getBytes(StandardCharsets.UTF_8), iterations, 256);
+            byte[] encoded = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            spec.clearPassword();
+            log.info("Ключ выведен из секрета, количество итераций {}", iterations);
+
+            return encoded;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось вывести ключ шифрования", e);
+        }
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Алгоритм AES/GCM недоступен", e);
+        }
+    }
+}
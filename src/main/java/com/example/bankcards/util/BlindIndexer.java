@@ -0,0 +1,53 @@
+package com.example.bankcards.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+/**
+ * Вычисляет слепой индекс (blind index) номера карты — HMAC-SHA256 с секретным ключом.
+ * В отличие от шифротекста со случайным IV, индекс одинаков для одинаковых номеров,
+ * поэтому по нему работают уникальный индекс и поиск карты по номеру без дешифрования.
+ * Ключ HMAC выводится из секрета шифрования с отдельной солью и не совпадает с ключом шифрования.
+ */
+@Component
+public class BlindIndexer {
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    public BlindIndexer(@Value("${encryption.secret}") String secret,
+                        @Value("${encryption.salt}") String salt,
+                        @Value("${encryption.iterations}") int iterations) {
+        this.key = new SecretKeySpec(AesGcmEncryptor.deriveKey(secret, salt + ":blind-index", iterations), "HmacSHA256");
+    }
+
+    /**
+     * Вычисляет слепой индекс значения.
+     *
+     * @param value исходное значение
+     * @return HMAC-SHA256 значения в шестнадцатеричном виде или {@code null}, если значение {@code null}
+     */
+    public String hash(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        return HexFormat.of().formatHex(macs.get().doFinal(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Алгоритм HmacSHA256 недоступен", e);
+        }
+    }
+}
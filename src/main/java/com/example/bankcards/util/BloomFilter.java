@@ -0,0 +1,75 @@
+package com.example.bankcards.util;
+
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасный фильтр Блума над HMAC-хешами в шестнадцатеричном виде.
+ * Биты хранятся в {@link AtomicLongArray} и устанавливаются через CAS, поэтому добавление
+ * и проверка значений не требуют блокировок. Позиции битов вычисляются двойным хешированием
+ * из первых 16 байт хеша, который уже равномерно распределен.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedItems     ожидаемое количество элементов
+     * @param falsePositiveRate допустимая доля ложноположительных ответов
+     */
+    public BloomFilter(long expectedItems, double falsePositiveRate) {
+        long optimalBits = (long) Math.ceil(-expectedItems * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray(Math.toIntExact(Math.max(1, (optimalBits + 63) / 64)));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedItems * Math.log(2)));
+    }
+
+    /**
+     * Добавляет хеш в фильтр.
+     *
+     * @param hash HMAC-хеш в шестнадцатеричном виде
+     * @return {@code true}, если хотя бы один бит был установлен этим вызовом,
+     * то есть значения гарантированно не было в фильтре
+     */
+    public boolean put(String hash) {
+        long h1 = HexFormat.fromHexDigitsToLong(hash, 0, 16);
+        long h2 = HexFormat.fromHexDigitsToLong(hash, 16, 32);
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << index;
+            int word = (int) (index >>> 6);
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+            changed |= (current & mask) == 0;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Проверяет, мог ли хеш быть добавлен в фильтр.
+     *
+     * @param hash HMAC-хеш в шестнадцатеричном виде
+     * @return {@code false}, если хеша гарантированно нет в фильтре
+     */
+    public boolean mightContain(String hash) {
+        long h1 = HexFormat.fromHexDigitsToLong(hash, 0, 16);
+        long h2 = HexFormat.fromHexDigitsToLong(hash, 16, 32);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
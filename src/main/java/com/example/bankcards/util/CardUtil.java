@@ -1,10 +1,8 @@
 package com.example.bankcards.util;
 
-import java.security.SecureRandom;
-
 /**
  * Утилитарный класс для работы с номерами банковских карт.
- * Предоставляет методы для маскирования номера карты и генерации случайного номера карты.
+ * Предоставляет методы для маскирования номера карты и расчета контрольной цифры по алгоритму Луна.
  */
 public class CardUtil {
 
@@ -13,28 +11,65 @@ public class CardUtil {
     /**
      * Маскирует номер карты, оставляя видимыми только последние 4 цифры.
      *
-     * @param cardNumber полный номер карты
+     * @param cardNumber полный номер карты или его последние 4 цифры
      * @return замаскированный номер карты в формате "**** **** **** 1234"
+     * или "**** **** **** ****", если номер неизвестен
      */
     public static String maskingNumber(String cardNumber) {
+        if (cardNumber == null) {
+            return mask + "****";
+        }
+
+        return mask + lastDigits(cardNumber);
+    }
+
+    /**
+     * Возвращает последние 4 цифры номера карты.
+     *
+     * @param cardNumber полный номер карты
+     * @return последние 4 цифры или {@code null}, если номер {@code null}
+     */
+    public static String lastDigits(String cardNumber) {
+        if (cardNumber == null) {
+            return null;
+        }
 
-        return mask + cardNumber.substring(cardNumber.length() - 4);
+        return cardNumber.substring(cardNumber.length() - 4);
     }
 
     /**
-     * Генерирует случайный номер карты длиной 16 цифр.
-     * Первая цифра не равна 0.
+     * Вычисляет контрольную цифру номера карты по алгоритму Луна.
      *
-     * @return случайный номер карты в виде строки
+     * @param digits номер карты без контрольной цифры
+     * @return контрольная цифра
      */
-    public static String generateRandomNumberCard(){
-        SecureRandom random = new SecureRandom();
-        StringBuilder builder = new StringBuilder();
-        builder.append(random.nextInt(9) + 1);
-        for (int i = 0; i < 15; i++){
-            builder.append(random.nextInt(10));
+    public static int luhnCheckDigit(CharSequence digits) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
         }
 
-        return builder.toString();
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * Проверяет номер карты по алгоритму Луна.
+     *
+     * @param cardNumber полный номер карты
+     * @return {@code true}, если контрольная цифра номера верна
+     */
+    public static boolean isLuhnValid(String cardNumber) {
+        int last = cardNumber.length() - 1;
+
+        return luhnCheckDigit(cardNumber.subSequence(0, last)) == cardNumber.charAt(last) - '0';
     }
 }
@@ -3,12 +3,11 @@ package com.example.bankcards.util;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
 import lombok.RequiredArgsConstructor;
-import org.jasypt.encryption.StringEncryptor;
 import org.springframework.stereotype.Component;
 
 /**
  * JPA-конвертер для шифрования и дешифрования строковых атрибутов сущностей при сохранении в базу данных.
- * Использует {@link StringEncryptor} для выполнения шифрования при записи в базу данных
+ * Использует {@link AesGcmEncryptor} для выполнения шифрования при записи в базу данных
  * и дешифрования при чтении из базы.
  */
 @Component
@@ -16,7 +15,7 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class EncryptionConverter implements AttributeConverter<String, String> {
 
-    private final StringEncryptor stringEncryptor;
+    private final AesGcmEncryptor aesGcmEncryptor;
 
     /**
      * Шифрует атрибут перед сохранением в базу данных.
@@ -30,7 +29,7 @@ public class EncryptionConverter implements AttributeConverter<String, String> {
             return null;
         }
 
-        return stringEncryptor.encrypt(attribute);
+        return aesGcmEncryptor.encrypt(attribute);
     }
 
     /**
@@ -45,6 +44,6 @@ public class EncryptionConverter implements AttributeConverter<String, String> {
             return null;
         }
 
-        return stringEncryptor.decrypt(dbData);
+        return aesGcmEncryptor.decrypt(dbData);
     }
 }
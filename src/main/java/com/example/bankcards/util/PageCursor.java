@@ -0,0 +1,50 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.WrongParameterException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Утилитарный класс для курсоров постраничной выборки по ключу.
+ * Курсор — непрозрачная для клиента строка, содержащая ID последнего элемента страницы.
+ */
+public class PageCursor {
+
+    private static final String PREFIX = "id:";
+
+    /**
+     * Кодирует ID последнего элемента страницы в курсор.
+     *
+     * @param lastId ID последнего элемента страницы
+     * @return курсор следующей страницы
+     */
+    public static String encode(long lastId) {
+
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Декодирует курсор в ID последнего элемента предыдущей страницы.
+     *
+     * @param cursor курсор или пустая строка для первой страницы
+     * @return ID последнего элемента или {@code null} для первой страницы
+     * @throws WrongParameterException если курсор некорректен
+     */
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new WrongParameterException("Некорректный курсор страницы");
+            }
+
+            return Long.parseLong(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new WrongParameterException("Некорректный курсор страницы");
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.request.TotalMode;
+import com.example.bankcards.dto.request.card.BatchNewCardRequestDTO;
+import com.example.bankcards.dto.request.card.BatchTransferRequestDTO;
 import com.example.bankcards.dto.request.card.CardRequestDTO;
+import com.example.bankcards.dto.request.card.CardStripesRequestDTO;
 import com.example.bankcards.dto.request.card.NewCardRequestDTO;
+import com.example.bankcards.dto.request.card.OwnerCardsRequestDTO;
 import com.example.bankcards.dto.request.card.TransferRequestDTO;
 import com.example.bankcards.dto.response.MessageResponseDTO;
 import com.example.bankcards.dto.response.PagedResponseDTO;
 import com.example.bankcards.dto.response.card.BalanceResponseDTO;
+import com.example.bankcards.dto.response.card.BatchTransferResponseDTO;
 import com.example.bankcards.dto.response.card.CardResponseDTO;
+import com.example.bankcards.dto.response.card.TransferResultDTO;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.entity.enums.UserRole;
@@ -28,8 +35,10 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -69,7 +78,7 @@ public class CardControllerTest {
         CardResponseDTO responseDTO = new CardResponseDTO(1L, "number", "owner", LocalDate.now(), CardStatus.ACTIVE);
         PagedResponseDTO<CardResponseDTO> cards = new PagedResponseDTO<>(List.of(responseDTO), 0, 10, 1L);
 
-        when(cardApiService.getMyCards(any(User.class), anyInt(), anyInt(), nullable(LocalDate.class), nullable(LocalDate.class), nullable(CardStatus.class), nullable(BigDecimal.class), nullable(BigDecimal.class), nullable(Boolean.class)))
+        when(cardApiService.getMyCards(any(User.class), anyInt(), anyInt(), nullable(String.class), any(TotalMode.class), nullable(LocalDate.class), nullable(LocalDate.class), nullable(CardStatus.class), nullable(BigDecimal.class), nullable(BigDecimal.class), nullable(Boolean.class)))
                 .thenReturn(cards);
 
         mockMvc.perform(get("/api/v1/cards")
@@ -80,6 +89,22 @@ public class CardControllerTest {
                 .andExpect(jsonPath("$.size").value(10));
     }
 
+    @Test
+    void getMyCards_shouldReturnNextCursor_whenCursorMode() throws Exception {
+        CardResponseDTO responseDTO = new CardResponseDTO(1L, "number", "owner", LocalDate.now(), CardStatus.ACTIVE);
+        PagedResponseDTO<CardResponseDTO> cards = new PagedResponseDTO<>(List.of(responseDTO), 0, 1, null, true, "aWQ6MQ");
+
+        when(cardApiService.getMyCards(any(User.class), anyInt(), anyInt(), eq(""), any(TotalMode.class), nullable(LocalDate.class), nullable(LocalDate.class), nullable(CardStatus.class), nullable(BigDecimal.class), nullable(BigDecimal.class), nullable(Boolean.class)))
+                .thenReturn(cards);
+
+        mockMvc.perform(get("/api/v1/cards")
+                        .param("cursor", "")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("aWQ6MQ"))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
     @Test
     void getMyCards_shouldReturn400_whenWrongRequest() throws Exception {
 
@@ -89,9 +114,19 @@ public class CardControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void getMyCards_shouldReturn400_whenSizeTooLarge() throws Exception {
+
+        mockMvc.perform(get("/api/v1/cards")
+                        .param("page", "0")
+                        .param("size", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(cardApiService);
+    }
+
     @Test
     void getMyCards_shouldReturn500_whenException() throws Exception {
-        when(cardApiService.getMyCards(any(User.class), anyInt(), anyInt(), nullable(LocalDate.class), nullable(LocalDate.class), nullable(CardStatus.class), nullable(BigDecimal.class), nullable(BigDecimal.class), nullable(Boolean.class)))
+        when(cardApiService.getMyCards(any(User.class), anyInt(), anyInt(), nullable(String.class), any(TotalMode.class), nullable(LocalDate.class), nullable(LocalDate.class), nullable(CardStatus.class), nullable(BigDecimal.class), nullable(BigDecimal.class), nullable(Boolean.class)))
                 .thenThrow(new RuntimeException());
 
         mockMvc.perform(get("/api/v1/cards")
@@ -130,15 +165,53 @@ public class CardControllerTest {
         TransferRequestDTO requestDTO = new TransferRequestDTO(1L, 2L, BigDecimal.TEN);
         MessageResponseDTO responseDTO = new MessageResponseDTO("test");
 
-        when(cardApiService.transfer(any(User.class), any(TransferRequestDTO.class))).thenReturn(responseDTO);
+        when(cardApiService.transfer(any(User.class), any(TransferRequestDTO.class), isNull())).thenReturn(responseDTO);
+
+        mockMvc.perform(post("/api/v1/cards/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("test"));
+    }
+
+    @Test
+    void transfer_shouldReturn503_whenLaneQueueFull() throws Exception {
+        TransferRequestDTO requestDTO = new TransferRequestDTO(1L, 2L, BigDecimal.TEN);
+        when(cardApiService.transfer(any(User.class), any(TransferRequestDTO.class), isNull()))
+                .thenThrow(new RejectedExecutionException());
+
+        mockMvc.perform(post("/api/v1/cards/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void transfer_shouldPassIdempotencyKey() throws Exception {
+        TransferRequestDTO requestDTO = new TransferRequestDTO(1L, 2L, BigDecimal.TEN);
+        MessageResponseDTO responseDTO = new MessageResponseDTO("test");
+
+        when(cardApiService.transfer(any(User.class), any(TransferRequestDTO.class), eq("key-1"))).thenReturn(responseDTO);
 
         mockMvc.perform(post("/api/v1/cards/transfer")
+                        .header("Idempotency-Key", "key-1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(requestDTO)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.message").value("test"));
     }
 
+    @Test
+    void transfer_shouldReturn400_whenIdempotencyKeyTooLong() throws Exception {
+        TransferRequestDTO requestDTO = new TransferRequestDTO(1L, 2L, BigDecimal.TEN);
+
+        mockMvc.perform(post("/api/v1/cards/transfer")
+                        .header("Idempotency-Key", "k".repeat(256))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void transfer_shouldReturn400_whenWrongRequest() throws Exception {
         TransferRequestDTO requestDTO = new TransferRequestDTO(1L, -2L, BigDecimal.TEN);
@@ -151,7 +224,7 @@ public class CardControllerTest {
     @Test
     void transfer_shouldReturn500_whenException() throws Exception {
         TransferRequestDTO requestDTO = new TransferRequestDTO(1L, 2L, BigDecimal.TEN);
-        when(cardApiService.transfer(any(User.class), any(TransferRequestDTO.class))).thenThrow(new RuntimeException());
+        when(cardApiService.transfer(any(User.class), any(TransferRequestDTO.class), isNull())).thenThrow(new RuntimeException());
 
         mockMvc.perform(post("/api/v1/cards/transfer")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -159,6 +232,46 @@ public class CardControllerTest {
                 .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    void transferBatch_shouldReturn200() throws Exception {
+        TransferRequestDTO transferDTO = new TransferRequestDTO(1L, 2L, BigDecimal.TEN);
+        BatchTransferRequestDTO requestDTO = new BatchTransferRequestDTO(List.of(transferDTO, transferDTO), false);
+        BatchTransferResponseDTO responseDTO = new BatchTransferResponseDTO(1, 1, List.of(
+                new TransferResultDTO(0, 1L, 2L, BigDecimal.TEN, true, "ok"),
+                new TransferResultDTO(1, 1L, 2L, BigDecimal.TEN, false, "fail")));
+
+        when(cardApiService.transferBatch(any(User.class), any(BatchTransferRequestDTO.class))).thenReturn(responseDTO);
+
+        mockMvc.perform(post("/api/v1/cards/transfer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[1].success").value(false));
+    }
+
+    @Test
+    void transferBatch_shouldReturn400_whenEmptyBatch() throws Exception {
+        BatchTransferRequestDTO requestDTO = new BatchTransferRequestDTO(List.of(), true);
+
+        mockMvc.perform(post("/api/v1/cards/transfer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void transferBatch_shouldReturn400_whenWrongItem() throws Exception {
+        BatchTransferRequestDTO requestDTO = new BatchTransferRequestDTO(
+                List.of(new TransferRequestDTO(1L, 2L, BigDecimal.ZERO)), true);
+
+        mockMvc.perform(post("/api/v1/cards/transfer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void requestBlock_shouldReturn200() throws Exception {
         CardRequestDTO cardRequestDTO = new CardRequestDTO(11L);
@@ -196,7 +309,7 @@ public class CardControllerTest {
         CardResponseDTO responseDTO = new CardResponseDTO(1L, "number", "owner", LocalDate.now(), CardStatus.ACTIVE);
         PagedResponseDTO<CardResponseDTO> cards = new PagedResponseDTO<>(List.of(responseDTO), 0, 10, 1L);
 
-        when(cardApiService.getAllCards(anyInt(), anyInt(), nullable(String.class), nullable(LocalDate.class), nullable(LocalDate.class), nullable(CardStatus.class), nullable(BigDecimal.class), nullable(BigDecimal.class), nullable(Boolean.class)))
+        when(cardApiService.getAllCards(anyInt(), anyInt(), nullable(String.class), any(TotalMode.class), nullable(String.class), nullable(LocalDate.class), nullable(LocalDate.class), nullable(CardStatus.class), nullable(BigDecimal.class), nullable(BigDecimal.class), nullable(Boolean.class)))
                 .thenReturn(cards);
 
         mockMvc.perform(get("/api/v1/cards/all")
@@ -207,6 +320,20 @@ public class CardControllerTest {
                 .andExpect(jsonPath("$.size").value(10));
     }
 
+    @Test
+    void getAllCards_shouldPassTotalMode() throws Exception {
+        PagedResponseDTO<CardResponseDTO> cards = new PagedResponseDTO<>(List.of(), 0, 10, null, true, null);
+
+        when(cardApiService.getAllCards(anyInt(), anyInt(), nullable(String.class), eq(TotalMode.NONE), nullable(String.class), nullable(LocalDate.class), nullable(LocalDate.class), nullable(CardStatus.class), nullable(BigDecimal.class), nullable(BigDecimal.class), nullable(Boolean.class)))
+                .thenReturn(cards);
+
+        mockMvc.perform(get("/api/v1/cards/all")
+                        .param("total", "NONE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
     @Test
     void getAllCards_shouldReturn400_whenWrongRequest() throws Exception {
 
@@ -216,9 +343,19 @@ public class CardControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void getAllCards_shouldReturn400_whenSizeTooLarge() throws Exception {
+
+        mockMvc.perform(get("/api/v1/cards/all")
+                        .param("page", "0")
+                        .param("size", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(cardApiService);
+    }
+
     @Test
     void getAllCards_shouldReturn500_whenException() throws Exception {
-        when(cardApiService.getAllCards(anyInt(), anyInt(), nullable(String.class), nullable(LocalDate.class), nullable(LocalDate.class), nullable(CardStatus.class), nullable(BigDecimal.class), nullable(BigDecimal.class), nullable(Boolean.class)))
+        when(cardApiService.getAllCards(anyInt(), anyInt(), nullable(String.class), any(TotalMode.class), nullable(String.class), nullable(LocalDate.class), nullable(LocalDate.class), nullable(CardStatus.class), nullable(BigDecimal.class), nullable(BigDecimal.class), nullable(Boolean.class)))
                 .thenThrow(new RuntimeException());
 
         mockMvc.perform(get("/api/v1/cards/all")
@@ -259,6 +396,70 @@ public class CardControllerTest {
                 .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    void createNewCards_shouldReturn200() throws Exception {
+        BatchNewCardRequestDTO requestDTO = new BatchNewCardRequestDTO(List.of(
+                new OwnerCardsRequestDTO(1L, 2),
+                new OwnerCardsRequestDTO(2L, 1)));
+        List<CardResponseDTO> responseDTO = List.of(
+                new CardResponseDTO(1L, "number1", "owner1", LocalDate.now(), CardStatus.ACTIVE),
+                new CardResponseDTO(2L, "number2", "owner1", LocalDate.now(), CardStatus.ACTIVE),
+                new CardResponseDTO(3L, "number3", "owner2", LocalDate.now(), CardStatus.ACTIVE));
+
+        when(cardApiService.createNewCards(any(BatchNewCardRequestDTO.class))).thenReturn(responseDTO);
+
+        mockMvc.perform(post("/api/v1/cards/create/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[2].number").value("number3"));
+    }
+
+    @Test
+    void createNewCards_shouldReturn400_whenCountTooLarge() throws Exception {
+        BatchNewCardRequestDTO requestDTO = new BatchNewCardRequestDTO(List.of(new OwnerCardsRequestDTO(1L, 101)));
+
+        mockMvc.perform(post("/api/v1/cards/create/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createNewCards_shouldReturn400_whenOwnersEmpty() throws Exception {
+        BatchNewCardRequestDTO requestDTO = new BatchNewCardRequestDTO(List.of());
+
+        mockMvc.perform(post("/api/v1/cards/create/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void setBalanceStripes_shouldReturn200() throws Exception {
+        CardStripesRequestDTO requestDTO = new CardStripesRequestDTO(11L, 8);
+        MessageResponseDTO responseDTO = new MessageResponseDTO("test");
+
+        when(cardApiService.setBalanceStripes(any(CardStripesRequestDTO.class))).thenReturn(responseDTO);
+
+        mockMvc.perform(patch("/api/v1/cards/stripes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("test"));
+    }
+
+    @Test
+    void setBalanceStripes_shouldReturn400_whenWrongRequest() throws Exception {
+        CardStripesRequestDTO requestDTO = new CardStripesRequestDTO(11L, 65);
+
+        mockMvc.perform(patch("/api/v1/cards/stripes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void blockCard_shouldReturn200() throws Exception {
         CardRequestDTO cardRequestDTO = new CardRequestDTO(11L);
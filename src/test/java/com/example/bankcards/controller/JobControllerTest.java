@@ -0,0 +1,49 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.response.job.JobReportResponseDTO;
+import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.service.SchedulerLeaseService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = JobController.class,
+        excludeFilters = @ComponentScan.Filter(
+                type = FilterType.ASSIGNABLE_TYPE,
+                classes = JwtAuthenticationFilter.class
+        ))
+@AutoConfigureMockMvc(addFilters = false)
+public class JobControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockitoBean
+    private SchedulerLeaseService schedulerLeaseService;
+
+    @Test
+    void getReport_shouldReturn200() throws Exception {
+        Instant now = Instant.now();
+        when(schedulerLeaseService.getReport()).thenReturn(List.of(
+                new JobReportResponseDTO("update_expired_cards", "node-1", now, now, now, 150L, 42L, null)));
+
+        mockMvc.perform(get("/api/v1/jobs"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].jobName").value("update_expired_cards"))
+                .andExpect(jsonPath("$[0].owner").value("node-1"))
+                .andExpect(jsonPath("$[0].lastDurationMs").value(150))
+                .andExpect(jsonPath("$[0].lastRows").value(42));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.request.TotalMode;
 import com.example.bankcards.dto.response.PagedResponseDTO;
 import com.example.bankcards.dto.response.user.UserResponseDTO;
 import com.example.bankcards.entity.enums.UserRole;
@@ -111,7 +112,7 @@ public class UserControllerTest {
     void getAllUsers_shouldReturn200() throws Exception {
         PagedResponseDTO<UserResponseDTO> responseDTO = new PagedResponseDTO<>(List.of(), 0, 2, 3);
 
-        when(userApiService.findAllUsers(anyInt(), anyInt(), anyString(), any(LocalDate.class), any(LocalDate.class))).thenReturn(responseDTO);
+        when(userApiService.findAllUsers(anyInt(), anyInt(), any(TotalMode.class), anyString(), any(LocalDate.class), any(LocalDate.class))).thenReturn(responseDTO);
 
         mockMvc.perform(get("/api/v1/users/all")
                         .param("page", "0")
@@ -136,10 +137,19 @@ public class UserControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void getAllUsers_shouldReturn400_whenSizeTooLarge() throws Exception {
+
+        mockMvc.perform(get("/api/v1/users/all")
+                        .param("page", "0")
+                        .param("size", "1001"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getAllUsers_shouldReturn500_whenException() throws Exception {
 
-        when(userApiService.findAllUsers(anyInt(), anyInt(), anyString(), any(LocalDate.class), any(LocalDate.class))).thenThrow(RuntimeException.class);
+        when(userApiService.findAllUsers(anyInt(), anyInt(), any(TotalMode.class), anyString(), any(LocalDate.class), any(LocalDate.class))).thenThrow(RuntimeException.class);
 
         mockMvc.perform(get("/api/v1/users/all")
                         .param("page", "0")
@@ -0,0 +1,227 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.UserRole;
+import com.example.bankcards.entity.listener.CardNumberHashListener;
+import com.example.bankcards.repository.projection.CardNumberHash;
+import com.example.bankcards.repository.projection.CardSummary;
+import com.example.bankcards.repository.projection.IdRange;
+import com.example.bankcards.repository.specification.CardSpecification;
+import com.example.bankcards.util.AesGcmEncryptor;
+import com.example.bankcards.util.BlindIndexer;
+import org.jasypt.encryption.StringEncryptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@Import({AesGcmEncryptor.class, BlindIndexer.class, CardNumberHashListener.class})
+@TestPropertySource(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "encryption.secret=secret",
+        "encryption.salt=salt",
+        "encryption.iterations=1000"
+})
+public class CardRepositoryTest {
+
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+    @MockitoBean
+    private StringEncryptor stringEncryptor;
+    @MockitoSpyBean
+    private AesGcmEncryptor aesGcmEncryptor;
+    @Autowired
+    private BlindIndexer blindIndexer;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        user = entityManager.persist(User.builder()
+                .login("test")
+                .passwordHash("hash")
+                .role(UserRole.ROLE_USER)
+                .build());
+        entityManager.persist(Card.builder()
+                .cardNumber("1234567812345678")
+                .owner(user)
+                .expiryDate(LocalDate.now().plusYears(5))
+                .cardStatus(CardStatus.ACTIVE)
+                .build());
+        entityManager.persist(Card.builder()
+                .cardNumber("8765432187654321")
+                .owner(user)
+                .expiryDate(LocalDate.now().plusYears(5))
+                .cardStatus(CardStatus.BLOCKED)
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+        clearInvocations(aesGcmEncryptor);
+    }
+
+    @Test
+    void findSummaries_shouldNotDecryptCardNumbers() {
+        Page<CardSummary> cards = cardRepository.findSummaries(
+                Specification.allOf(CardSpecification.cardOwner(user), CardSpecification.hasStatus(CardStatus.ACTIVE)),
+                PageRequest.of(0, 10));
+
+        assertEquals(1, cards.getTotalElements());
+        CardSummary summary = cards.getContent().get(0);
+        assertEquals("5678", summary.cardLast4());
+        assertEquals("test", summary.ownerLogin());
+        assertEquals(CardStatus.ACTIVE, summary.cardStatus());
+        verify(aesGcmEncryptor, never()).decrypt(anyString());
+    }
+
+    @Test
+    void findSummaries_shouldCountAllMatchingCards() {
+        Page<CardSummary> cards = cardRepository.findSummaries(CardSpecification.cardOwner(user), PageRequest.of(0, 1));
+
+        assertEquals(1, cards.getContent().size());
+        assertEquals(2, cards.getTotalElements());
+        verify(aesGcmEncryptor, never()).decrypt(anyString());
+    }
+
+    @Test
+    void findSummarySlice_shouldDetectNextPageWithoutCount() {
+        Slice<CardSummary> first = cardRepository.findSummarySlice(CardSpecification.cardOwner(user), PageRequest.of(0, 1));
+        Slice<CardSummary> second = cardRepository.findSummarySlice(CardSpecification.cardOwner(user), PageRequest.of(1, 1));
+
+        assertEquals(1, first.getNumberOfElements());
+        assertTrue(first.hasNext());
+        assertEquals(1, second.getNumberOfElements());
+        assertFalse(second.hasNext());
+        verify(aesGcmEncryptor, never()).decrypt(anyString());
+    }
+
+    @Test
+    void findSummariesAfter_shouldSeekPastLastIdWithFilters() {
+        List<CardSummary> first = cardRepository.findSummariesAfter(CardSpecification.cardOwner(user), null, 1);
+        List<CardSummary> second = cardRepository.findSummariesAfter(CardSpecification.cardOwner(user), first.get(0).id(), 10);
+        List<CardSummary> blocked = cardRepository.findSummariesAfter(
+                Specification.allOf(CardSpecification.cardOwner(user), CardSpecification.hasStatus(CardStatus.BLOCKED)), null, 10);
+
+        assertEquals(1, first.size());
+        assertEquals("5678", first.get(0).cardLast4());
+        assertEquals(1, second.size());
+        assertEquals("4321", second.get(0).cardLast4());
+        assertTrue(second.get(0).id() > first.get(0).id());
+        assertEquals(second, blocked);
+        assertTrue(cardRepository.findSummariesAfter(CardSpecification.cardOwner(user), second.get(0).id(), 10).isEmpty());
+        verify(aesGcmEncryptor, never()).decrypt(anyString());
+    }
+
+    @Test
+    void findAll_shouldDecryptCardNumbers() {
+        cardRepository.findAll(CardSpecification.cardOwner(user), PageRequest.of(0, 10));
+
+        verify(aesGcmEncryptor, times(2)).decrypt(anyString());
+    }
+
+    @Test
+    void findLegacyEncryptedIds_shouldReturnOnlyValuesWithoutVersionPrefix() {
+        Long cardId = cardRepository.findSummaries(CardSpecification.cardOwner(user), PageRequest.of(0, 1))
+                .getContent().get(0).id();
+
+        assertTrue(cardRepository.findLegacyEncryptedIds(10).isEmpty());
+
+        cardRepository.updateEncryptedCardNumber(cardId, "legacy");
+
+        assertEquals(List.of(cardId), cardRepository.findLegacyEncryptedIds(10));
+    }
+
+    @Test
+    void findWithoutNumberColumns_shouldReturnCardsWithoutHashAfterId() {
+        List<Long> ids = cardRepository.findSummaries(CardSpecification.cardOwner(user), PageRequest.of(0, 2))
+                .getContent().stream().map(CardSummary::id).sorted().toList();
+        entityManager.getEntityManager().createNativeQuery("update cards set card_number_hash = null where id = :id")
+                .setParameter("id", ids.get(1))
+                .executeUpdate();
+        entityManager.clear();
+
+        List<Card> cards = cardRepository.findWithoutNumberColumns(0L, Limit.of(10));
+
+        assertEquals(List.of(ids.get(1)), cards.stream().map(Card::getId).toList());
+        assertTrue(cardRepository.findWithoutNumberColumns(ids.get(1), Limit.of(10)).isEmpty());
+    }
+
+    @Test
+    void findCardNumberHashesIn_shouldReturnCardsWithGivenHashes() {
+        String hash = blindIndexer.hash("8765432187654321");
+
+        List<CardNumberHash> hashes = cardRepository.findCardNumberHashesIn(List.of(hash, blindIndexer.hash("1111222233334444")));
+
+        assertEquals(1, hashes.size());
+        assertEquals(hash, hashes.get(0).cardNumberHash());
+        assertEquals(CardStatus.BLOCKED, cardRepository.findById(hashes.get(0).id()).orElseThrow().getCardStatus());
+    }
+
+    @Test
+    void findByCardNumber_shouldFindCardByBlindIndex() {
+        Optional<Card> card = cardRepository.findByCardNumber("8765432187654321");
+
+        assertTrue(card.isPresent());
+        assertEquals(CardStatus.BLOCKED, card.get().getCardStatus());
+        assertTrue(cardRepository.findByCardNumber("1111222233334444").isEmpty());
+    }
+
+    @Test
+    void markExpired_shouldUpdateOnlyExpiredCardsInRange() {
+        Card expired = entityManager.persist(Card.builder()
+                .cardNumber("1111222233334444")
+                .owner(user)
+                .expiryDate(LocalDate.now().minusDays(1))
+                .cardStatus(CardStatus.ACTIVE)
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+        LocalDate now = LocalDate.now();
+
+        IdRange range = cardRepository.findExpiringIdRange(now, CardStatus.EXPIRED);
+        assertEquals(expired.getId(), range.minId());
+        assertEquals(expired.getId(), range.maxId());
+
+        assertEquals(1, cardRepository.markExpired(0L, range.maxId(), now, CardStatus.EXPIRED));
+        assertEquals(0, cardRepository.markExpired(0L, range.maxId(), now, CardStatus.EXPIRED));
+        entityManager.clear();
+        assertEquals(CardStatus.EXPIRED, cardRepository.findById(expired.getId()).orElseThrow().getCardStatus());
+        assertNull(cardRepository.findExpiringIdRange(now, CardStatus.EXPIRED).minId());
+    }
+
+    @Test
+    void save_shouldThrowException_whenCardNumberDuplicated() {
+        Card duplicate = Card.builder()
+                .cardNumber("1234567812345678")
+                .owner(user)
+                .expiryDate(LocalDate.now().plusYears(5))
+                .cardStatus(CardStatus.ACTIVE)
+                .build();
+
+        assertThrows(DataIntegrityViolationException.class, () -> cardRepository.saveAndFlush(duplicate));
+    }
+}
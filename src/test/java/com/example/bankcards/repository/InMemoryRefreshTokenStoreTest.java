@@ -0,0 +1,141 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class InMemoryRefreshTokenStoreTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private InMemoryRefreshTokenStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new InMemoryRefreshTokenStore(refreshTokenRepository, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void save_shouldBeFoundWithoutDatabase() {
+        RefreshToken refreshToken = refreshToken("token", 1L);
+
+        store.save(refreshToken);
+
+        assertSame(refreshToken, store.findByToken("token").orElseThrow());
+        verifyNoInteractions(refreshTokenRepository);
+    }
+
+    @Test
+    void flush_shouldPersistPendingTokensOnce() {
+        store.save(refreshToken("first", 1L));
+        store.save(refreshToken("second", 2L));
+
+        assertEquals(2, store.flush());
+        assertEquals(0, store.flush());
+        verify(refreshTokenRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void flush_shouldSaveOneByOne_whenBatchFails() {
+        RefreshToken first = refreshToken("first", 1L);
+        RefreshToken second = refreshToken("second", 2L);
+        store.save(first);
+        store.save(second);
+        when(refreshTokenRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("fk"));
+        when(refreshTokenRepository.save(first)).thenThrow(new DataIntegrityViolationException("fk"));
+
+        assertEquals(1, store.flush());
+        verify(refreshTokenRepository, times(1)).save(second);
+        assertEquals(0, store.flush());
+    }
+
+    @Test
+    void delete_shouldNotTouchDatabase_whenTokenNotPersisted() {
+        store.save(refreshToken("token", 1L));
+
+        store.delete("token");
+
+        assertTrue(store.findByToken("token").isEmpty());
+        assertEquals(0, store.flush());
+        verifyNoInteractions(refreshTokenRepository);
+    }
+
+    @Test
+    void delete_shouldWriteThrough_whenTokenPersisted() {
+        store.save(refreshToken("token", 1L));
+        store.flush();
+
+        store.delete("token");
+
+        assertTrue(store.findByToken("token").isEmpty());
+        verify(refreshTokenRepository, times(1)).deleteRefreshTokenByToken("token");
+    }
+
+    @Test
+    void deleteByUserId_shouldRemoveUserTokens() {
+        store.save(refreshToken("first", 1L));
+        store.save(refreshToken("second", 2L));
+
+        store.deleteByUserId(1L);
+
+        assertTrue(store.findByToken("first").isEmpty());
+        assertTrue(store.findByToken("second").isPresent());
+        assertEquals(1, store.flush());
+    }
+
+    @Test
+    void evictExpired_shouldRemoveExpiredTokens() {
+        RefreshToken expired = refreshToken("expired", 1L);
+        expired.setExpiryDate(Instant.now().minusSeconds(60));
+        store.save(expired);
+        store.save(refreshToken("active", 1L));
+
+        store.evictExpired(Instant.now());
+
+        assertTrue(store.findByToken("expired").isEmpty());
+        assertTrue(store.findByToken("active").isPresent());
+        assertEquals(1, store.flush());
+    }
+
+    @Test
+    void load_shouldRestoreFlushedTokensAfterRestart() {
+        store.save(refreshToken("flushed", 1L));
+        store.flush();
+        store.save(refreshToken("lost", 1L));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<RefreshToken>> persisted = ArgumentCaptor.forClass(List.class);
+        verify(refreshTokenRepository).saveAll(persisted.capture());
+        when(refreshTokenRepository.findAllByExpiryDateAfter(any(Instant.class))).thenReturn(persisted.getValue());
+
+        InMemoryRefreshTokenStore restarted = new InMemoryRefreshTokenStore(refreshTokenRepository, new SimpleMeterRegistry());
+        restarted.load();
+
+        assertTrue(restarted.findByToken("flushed").isPresent());
+        assertTrue(restarted.findByToken("lost").isEmpty());
+    }
+
+    private RefreshToken refreshToken(String token, Long userId) {
+        return RefreshToken.builder()
+                .token(token)
+                .user(User.builder().id(userId).build())
+                .expiryDate(Instant.now().plusSeconds(3600))
+                .build();
+    }
+}
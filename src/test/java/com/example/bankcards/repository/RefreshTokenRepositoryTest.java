@@ -0,0 +1,81 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.UserRole;
+import com.example.bankcards.entity.listener.CardNumberHashListener;
+import com.example.bankcards.repository.projection.IdRange;
+import com.example.bankcards.util.AesGcmEncryptor;
+import com.example.bankcards.util.BlindIndexer;
+import org.jasypt.encryption.StringEncryptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({AesGcmEncryptor.class, BlindIndexer.class, CardNumberHashListener.class})
+@TestPropertySource(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "encryption.secret=secret",
+        "encryption.salt=salt",
+        "encryption.iterations=1000"
+})
+public class RefreshTokenRepositoryTest {
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+    @MockitoBean
+    private StringEncryptor stringEncryptor;
+
+    private Instant now;
+
+    @BeforeEach
+    public void setUp() {
+        now = Instant.now();
+        User user = entityManager.persist(User.builder()
+                .login("test")
+                .passwordHash("hash")
+                .role(UserRole.ROLE_USER)
+                .build());
+        for (int i = 0; i < 5; i++) {
+            entityManager.persist(RefreshToken.builder()
+                    .token("expired-" + i)
+                    .user(user)
+                    .expiryDate(now.minusSeconds(60))
+                    .build());
+        }
+        entityManager.persist(RefreshToken.builder()
+                .token("active")
+                .user(user)
+                .expiryDate(now.plusSeconds(60))
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void deleteExpiredRange_shouldDeleteExpiredTokensInRange() {
+        IdRange range = refreshTokenRepository.findExpiredIdRange(now);
+        assertEquals(4, range.maxId() - range.minId());
+
+        assertEquals(2, refreshTokenRepository.deleteExpiredRange(now, range.minId(), range.minId() + 1));
+        assertEquals(3, refreshTokenRepository.deleteExpiredRange(now, range.minId(), range.maxId() + 1));
+        assertEquals(0, refreshTokenRepository.deleteExpiredRange(now, range.minId(), range.maxId() + 1));
+
+        assertEquals(1, refreshTokenRepository.count());
+        assertTrue(refreshTokenRepository.findByToken("active").isPresent());
+        assertNull(refreshTokenRepository.findExpiredIdRange(now).minId());
+    }
+}
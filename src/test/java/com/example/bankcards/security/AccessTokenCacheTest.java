@@ -0,0 +1,149 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccessTokenCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Authentication authentication = new UsernamePasswordAuthenticationToken("test", "", List.of());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void get_shouldVerifyTokenOnce_whenCached() {
+        AccessTokenCache accessTokenCache = new AccessTokenCache(true, 100, 60000, 900000, meterRegistry);
+
+        Optional<Authentication> first = accessTokenCache.get("token", loader(Instant.now().plusSeconds(600)));
+        Optional<Authentication> second = accessTokenCache.get("token", loader(Instant.now().plusSeconds(600)));
+
+        assertSame(authentication, first.orElseThrow());
+        assertSame(authentication, second.orElseThrow());
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "access_tokens").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "access_tokens").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void get_shouldNotServeEntry_whenTokenExpired() {
+        AccessTokenCache accessTokenCache = new AccessTokenCache(true, 100, 60000, 900000, meterRegistry);
+
+        accessTokenCache.get("token", loader(Instant.now().minusSeconds(1)));
+        accessTokenCache.get("token", loader(Instant.now().minusSeconds(1)));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_shouldReturnEmpty_whenTokenRevoked() {
+        AccessTokenCache accessTokenCache = new AccessTokenCache(true, 100, 60000, 900000, meterRegistry);
+        accessTokenCache.get("token", loader(Instant.now().plusSeconds(600)));
+
+        accessTokenCache.revoke("token", Instant.now().plusSeconds(600));
+
+        assertTrue(accessTokenCache.get("token", loader(Instant.now().plusSeconds(600))).isEmpty());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_shouldReturnEmpty_whenUserRevoked() {
+        AccessTokenCache accessTokenCache = new AccessTokenCache(true, 100, 60000, 900000, meterRegistry);
+        CustomUserDetails userDetails = new CustomUserDetails(User.builder()
+                .id(7L)
+                .login("test")
+                .role(UserRole.ROLE_USER)
+                .build());
+        Authentication userAuthentication = new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
+        Supplier<Optional<AccessTokenCache.CachedAuthentication>> loader =
+                () -> Optional.of(new AccessTokenCache.CachedAuthentication(userAuthentication, Instant.now().plusSeconds(600)));
+        accessTokenCache.get("token", loader);
+
+        accessTokenCache.revokeUser(7L);
+
+        assertTrue(accessTokenCache.get("token", loader).isEmpty());
+        assertTrue(accessTokenCache.get("other", loader).isEmpty());
+    }
+
+    @Test
+    void get_shouldReloadAuthentication_whenTtlExpired() throws InterruptedException {
+        AccessTokenCache accessTokenCache = new AccessTokenCache(true, 100, 50, 900000, meterRegistry);
+
+        accessTokenCache.get("token", loader(Instant.now().plusSeconds(600)));
+        Thread.sleep(100);
+        accessTokenCache.get("token", loader(Instant.now().plusSeconds(600)));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_shouldNotCacheInvalidToken() {
+        AccessTokenCache accessTokenCache = new AccessTokenCache(true, 100, 60000, 900000, meterRegistry);
+
+        assertTrue(accessTokenCache.get("token", Optional::empty).isEmpty());
+        assertEquals(authentication, accessTokenCache.get("token", loader(Instant.now().plusSeconds(600))).orElseThrow());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_shouldVerifyEveryTime_whenDisabled() {
+        AccessTokenCache accessTokenCache = new AccessTokenCache(false, 100, 60000, 900000, meterRegistry);
+
+        accessTokenCache.get("token", loader(Instant.now().plusSeconds(600)));
+        accessTokenCache.get("token", loader(Instant.now().plusSeconds(600)));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_shouldReturnEmpty_whenTokenRevokedAndCacheDisabled() {
+        AccessTokenCache accessTokenCache = new AccessTokenCache(false, 100, 60000, 900000, meterRegistry);
+
+        accessTokenCache.revoke("token", Instant.now().plusSeconds(600));
+
+        assertTrue(accessTokenCache.get("token", loader(Instant.now().plusSeconds(600))).isEmpty());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void get_shouldKeepRevocations_whenMoreThanCacheSizeRevoked() {
+        AccessTokenCache accessTokenCache = new AccessTokenCache(true, 10, 60000, 900000, meterRegistry);
+        CustomUserDetails userDetails = new CustomUserDetails(User.builder()
+                .id(1L)
+                .login("test")
+                .role(UserRole.ROLE_USER)
+                .build());
+        Authentication userAuthentication = new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
+        Supplier<Optional<AccessTokenCache.CachedAuthentication>> loader =
+                () -> Optional.of(new AccessTokenCache.CachedAuthentication(userAuthentication, Instant.now().plusSeconds(600)));
+
+        accessTokenCache.revokeUser(1L);
+        for (int i = 0; i < 10000; i++) {
+            accessTokenCache.revoke("token" + i, Instant.now().plusSeconds(600));
+            accessTokenCache.revokeUser(1000L + i);
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(accessTokenCache.get("token" + i, loader(Instant.now().plusSeconds(600))).isEmpty());
+        }
+        assertEquals(0, loads.get());
+        assertTrue(accessTokenCache.get("other", loader).isEmpty());
+    }
+
+    private Supplier<Optional<AccessTokenCache.CachedAuthentication>> loader(Instant expiresAt) {
+        return () -> {
+            loads.incrementAndGet();
+            return Optional.of(new AccessTokenCache.CachedAuthentication(authentication, expiresAt));
+        };
+    }
+}
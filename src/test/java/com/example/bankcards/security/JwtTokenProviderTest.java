@@ -0,0 +1,128 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.UserRole;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class JwtTokenProviderTest {
+
+    private static final String accessSecret = "access-secret-access-secret-access-secret";
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    @InjectMocks
+    private JwtTokenProvider jwtTokenProvider;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(jwtTokenProvider, "accessSecretKey", accessSecret);
+        ReflectionTestUtils.setField(jwtTokenProvider, "refreshSecretKey", "refresh-secret-refresh-secret-refresh-secret");
+        ReflectionTestUtils.setField(jwtTokenProvider, "accessMaxAge", 60000L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "statelessPrincipal", true);
+        jwtTokenProvider.init();
+        user = User.builder()
+                .id(7L)
+                .login("test")
+                .passwordHash("hash")
+                .role(UserRole.ROLE_USER)
+                .build();
+    }
+
+    @Test
+    void getAuthentication_shouldBuildPrincipalFromClaims() {
+        String token = jwtTokenProvider.createAccessToken(user);
+
+        Authentication authentication = jwtTokenProvider.getAuthentication(jwtTokenProvider.parseAccessToken(token).orElseThrow());
+
+        User principal = ((CustomUserDetails) authentication.getPrincipal()).getUser();
+        assertEquals(7L, principal.getId());
+        assertEquals("test", principal.getLogin());
+        assertEquals(UserRole.ROLE_USER, principal.getRole());
+        assertEquals("ROLE_USER", authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).findFirst().orElseThrow());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void getAuthentication_shouldLoadUser_whenStatelessPrincipalDisabled() {
+        ReflectionTestUtils.setField(jwtTokenProvider, "statelessPrincipal", false);
+        String token = jwtTokenProvider.createAccessToken(user);
+
+        when(userDetailsService.loadUserByUsername("test")).thenReturn(new CustomUserDetails(user));
+
+        Authentication authentication = jwtTokenProvider.getAuthentication(jwtTokenProvider.parseAccessToken(token).orElseThrow());
+
+        assertSame(user, ((CustomUserDetails) authentication.getPrincipal()).getUser());
+    }
+
+    @Test
+    void getAuthentication_shouldLoadUser_whenTokenHasNoIdClaim() {
+        String token = Jwts.builder()
+                .claim("login", "test")
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(Keys.hmacShaKeyFor(accessSecret.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        when(userDetailsService.loadUserByUsername("test")).thenReturn(new CustomUserDetails(user));
+
+        Authentication authentication = jwtTokenProvider.getAuthentication(jwtTokenProvider.parseAccessToken(token).orElseThrow());
+
+        assertSame(user, ((CustomUserDetails) authentication.getPrincipal()).getUser());
+    }
+
+    @Test
+    void parseAccessToken_shouldReturnClaims_whenTokenValid() {
+        String token = jwtTokenProvider.createAccessToken(user);
+
+        Claims claims = jwtTokenProvider.parseAccessToken(token).orElseThrow();
+
+        assertEquals("test", claims.get("login", String.class));
+        assertEquals(7L, claims.get("id", Long.class));
+    }
+
+    @Test
+    void parseAccessToken_shouldReturnEmpty_whenTokenSignedWithOtherKey() {
+        String token = Jwts.builder()
+                .claim("login", "test")
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(Keys.hmacShaKeyFor("refresh-secret-refresh-secret-refresh-secret".getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        assertTrue(jwtTokenProvider.parseAccessToken(token).isEmpty());
+    }
+
+    @Test
+    void parseAccessToken_shouldReturnEmpty_whenTokenExpired() {
+        ReflectionTestUtils.setField(jwtTokenProvider, "accessMaxAge", -60000L);
+        String token = jwtTokenProvider.createAccessToken(user);
+
+        assertTrue(jwtTokenProvider.parseAccessToken(token).isEmpty());
+    }
+
+    @Test
+    void parseAccessToken_shouldReturnEmpty_whenTokenMalformed() {
+        assertTrue(jwtTokenProvider.parseAccessToken("not-a-token").isEmpty());
+        assertTrue(jwtTokenProvider.parseAccessToken("").isEmpty());
+    }
+}
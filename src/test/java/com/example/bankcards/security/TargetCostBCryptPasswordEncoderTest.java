@@ -0,0 +1,36 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TargetCostBCryptPasswordEncoderTest {
+
+    private final TargetCostBCryptPasswordEncoder encoder = new TargetCostBCryptPasswordEncoder(5);
+
+    @Test
+    void upgradeEncoding_shouldReturnTrue_whenCostDiffers() {
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("password")));
+    }
+
+    @Test
+    void upgradeEncoding_shouldReturnFalse_whenCostMatchesTarget() {
+        String hash = encoder.encode("password");
+
+        assertTrue(hash.startsWith("$2a$05$"));
+        assertFalse(encoder.upgradeEncoding(hash));
+    }
+
+    @Test
+    void upgradeEncoding_shouldReturnFalse_whenHashNotBCrypt() {
+        assertFalse(encoder.upgradeEncoding(null));
+        assertFalse(encoder.upgradeEncoding("hash"));
+    }
+
+    @Test
+    void matches_shouldAcceptHashWithOtherCost() {
+        assertTrue(encoder.matches("password", new BCryptPasswordEncoder(4).encode("password")));
+    }
+}
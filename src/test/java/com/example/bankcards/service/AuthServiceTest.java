@@ -11,8 +11,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.function.Supplier;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -25,6 +28,8 @@ public class AuthServiceTest {
     private UserService userService;
     @Mock
     private PasswordEncoder passwordEncoder;
+    @Mock
+    private PasswordHashingExecutor passwordHashingExecutor;
 
     @InjectMocks
     private AuthService authService;
@@ -41,6 +46,7 @@ public class AuthServiceTest {
 
         when(userService.findUserByLogin("test")).thenReturn(user);
         when(passwordEncoder.matches(anyString(), anyString())).thenReturn(true);
+        when(passwordHashingExecutor.execute(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
 
         UserResponseDTO responseDTO = authService.login(dto);
 
@@ -48,6 +54,50 @@ public class AuthServiceTest {
         assertEquals(user.getLogin(), responseDTO.login());
         assertEquals(user.getRole(), responseDTO.role());
         verify(userService, times(1)).findUserByLogin("test");
+        verify(userService, never()).updatePasswordHash(any(), anyString());
+    }
+
+    @Test
+    void login_shouldRehashPassword_whenHashOutdated(){
+        LoginRequestDTO dto = new LoginRequestDTO("test", "testPassword", true);
+        User user = User.builder()
+                .id(1L)
+                .login("test")
+                .passwordHash("testPasswordHash")
+                .role(UserRole.ROLE_USER)
+                .build();
+
+        when(userService.findUserByLogin("test")).thenReturn(user);
+        when(passwordEncoder.matches(anyString(), anyString())).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("testPasswordHash")).thenReturn(true);
+        when(passwordEncoder.encode("testPassword")).thenReturn("newPasswordHash");
+        when(passwordHashingExecutor.execute(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+
+        authService.login(dto);
+
+        verify(userService, times(1)).updatePasswordHash(1L, "newPasswordHash");
+    }
+
+    @Test
+    void login_shouldSucceed_whenRehashFails(){
+        LoginRequestDTO dto = new LoginRequestDTO("test", "testPassword", true);
+        User user = User.builder()
+                .id(1L)
+                .login("test")
+                .passwordHash("testPasswordHash")
+                .role(UserRole.ROLE_USER)
+                .build();
+
+        when(userService.findUserByLogin("test")).thenReturn(user);
+        when(passwordEncoder.matches(anyString(), anyString())).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("testPasswordHash")).thenReturn(true);
+        when(passwordEncoder.encode("testPassword")).thenReturn("newPasswordHash");
+        when(passwordHashingExecutor.execute(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        doThrow(new QueryTimeoutException("timeout")).when(userService).updatePasswordHash(1L, "newPasswordHash");
+
+        UserResponseDTO responseDTO = authService.login(dto);
+
+        assertEquals(user.getId(), responseDTO.id());
     }
 
     @Test
@@ -62,6 +112,7 @@ public class AuthServiceTest {
 
         when(userService.findUserByLogin("test")).thenReturn(user);
         when(passwordEncoder.matches(anyString(), anyString())).thenReturn(false);
+        when(passwordHashingExecutor.execute(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
 
         assertThrows(WrongParameterException.class, () -> authService.login(dto));
     }
@@ -77,6 +128,7 @@ public class AuthServiceTest {
                 .build();
 
         when(passwordEncoder.encode(anyString())).thenReturn("testPasswordHash");
+        when(passwordHashingExecutor.execute(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
         when(userService.saveUser(any(User.class))).thenReturn(user);
 
         UserResponseDTO responseDTO = authService.register(dto);
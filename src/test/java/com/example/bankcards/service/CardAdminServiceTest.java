@@ -3,15 +3,27 @@ package com.example.bankcards.service;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardBalance;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.WrongParameterException;
 import com.example.bankcards.repository.CardBalanceRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TableStatisticsRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.projection.CardNumberHash;
+import com.example.bankcards.repository.projection.CardSummary;
+import com.example.bankcards.repository.projection.IdRange;
+import com.example.bankcards.util.AesGcmEncryptor;
+import com.example.bankcards.util.BlindIndexer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -19,12 +31,19 @@ import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +55,22 @@ public class CardAdminServiceTest {
     private CardBalanceRepository cardBalanceRepository;
     @Mock
     private UserService userService;
+    @Mock
+    private TransferRepository transferRepository;
+    @Mock
+    private TransactionRetryService transactionRetryService;
+    @Mock
+    private BlindIndexer blindIndexer;
+    @Mock
+    private CardNumberAllocator cardNumberAllocator;
+    @Spy
+    private SimpleMeterRegistry meterRegistry;
+    @Mock
+    private RangeJobRunner rangeJobRunner;
+    @Mock
+    private TableStatisticsRepository tableStatisticsRepository;
+    @Mock
+    private AesGcmEncryptor aesGcmEncryptor;
 
     @InjectMocks
     private CardAdminService cardAdminService;
@@ -52,17 +87,19 @@ public class CardAdminServiceTest {
 
     @Test
     void getAll_shouldReturnPageOfCards() {
-        Page<Card> cardPage = new PageImpl<>(List.of(card));
+        Page<CardSummary> cardPage = new PageImpl<>(List.of(
+                new CardSummary(card.getId(), "1234", "test", LocalDate.now(), CardStatus.ACTIVE)));
         Specification<Card> spec = (root, query, builder) -> null;
 
-        when(cardRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(cardPage);
+        when(cardRepository.findSummaries(any(Specification.class), any(Pageable.class))).thenReturn(cardPage);
 
-        Page<Card> result = cardAdminService.getAll(spec, Pageable.unpaged());
+        Page<CardSummary> result = cardAdminService.getAll(spec, Pageable.unpaged());
 
         assertNotNull(result);
         assertEquals(cardPage.getTotalElements(), result.getTotalElements());
-        assertEquals(cardPage.getContent().get(0).getId(), result.getContent().get(0).getId());
-        assertEquals(cardPage.getContent().get(0).getCardNumber(), result.getContent().get(0).getCardNumber());
+        assertEquals(cardPage.getContent().get(0).id(), result.getContent().get(0).id());
+        assertEquals(cardPage.getContent().get(0).cardLast4(), result.getContent().get(0).cardLast4());
+        verify(cardRepository, never()).findAll(any(Specification.class), any(Pageable.class));
     }
 
     @Test
@@ -78,8 +115,11 @@ public class CardAdminServiceTest {
                 .build();
 
         when(userService.findUserById(anyLong())).thenReturn(user);
-        when(cardRepository.save(any(Card.class))).thenReturn(card);
+        when(cardNumberAllocator.allocate()).thenReturn("2200700000000001");
+        when(cardRepository.saveAndFlush(any(Card.class))).thenReturn(card);
         when(cardBalanceRepository.save(any(CardBalance.class))).thenReturn(cardBalance);
+        when(transactionRetryService.execute(any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
 
         Card result = cardAdminService.create(anyLong());
 
@@ -90,6 +130,98 @@ public class CardAdminServiceTest {
         assertEquals(card.getBalance().getBalance(), result.getBalance().getBalance());
     }
 
+    @Test
+    void create_shouldRetryWithNewNumber_whenNumberAlreadyIssued() {
+        User user = User.builder()
+                .id(2L)
+                .login("test")
+                .build();
+
+        when(userService.findUserById(2L)).thenReturn(user);
+        when(cardNumberAllocator.allocate()).thenReturn("2200700000000001", "2200700000000019");
+        when(cardRepository.saveAndFlush(any(Card.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate card_number_hash"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(cardBalanceRepository.save(any(CardBalance.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactionRetryService.execute(any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+
+        Card result = cardAdminService.create(2L);
+
+        assertEquals("2200700000000019", result.getCardNumber());
+        verify(transactionRetryService, times(2)).execute(any(Supplier.class));
+    }
+
+    @Test
+    void create_shouldThrowException_whenNumbersCollideOnEveryAttempt() {
+        when(userService.findUserById(2L)).thenReturn(User.builder().id(2L).build());
+        when(cardNumberAllocator.allocate()).thenReturn("2200700000000001");
+        when(cardRepository.saveAndFlush(any(Card.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate card_number_hash"));
+        when(transactionRetryService.execute(any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+
+        assertThrows(IllegalStateException.class, () -> cardAdminService.create(2L));
+        verify(cardRepository, times(5)).saveAndFlush(any(Card.class));
+        verify(cardBalanceRepository, never()).save(any(CardBalance.class));
+    }
+
+    @Test
+    void createBatch_shouldCreateCardsWithBalancesForEachOwner() {
+        User first = User.builder()
+                .id(1L)
+                .login("first")
+                .build();
+        User second = User.builder()
+                .id(2L)
+                .login("second")
+                .build();
+        Map<Long, Integer> cardsByOwner = new LinkedHashMap<>();
+        cardsByOwner.put(1L, 2);
+        cardsByOwner.put(2L, 1);
+
+        when(userService.findUsersByIds(cardsByOwner.keySet())).thenReturn(Map.of(1L, first, 2L, second));
+        when(cardNumberAllocator.allocate()).thenReturn("2200700000000001", "2200700000000019", "2200700000000027");
+        when(cardRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(cardBalanceRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactionRetryService.execute(any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+
+        List<Card> result = cardAdminService.createBatch(cardsByOwner);
+
+        assertEquals(3, result.size());
+        assertEquals(List.of("first", "first", "second"), result.stream().map(c -> c.getOwner().getLogin()).toList());
+        assertEquals("2200700000000027", result.get(2).getCardNumber());
+        assertTrue(result.stream().allMatch(c -> c.getBalance().getCard() == c
+                && BigDecimal.ZERO.equals(c.getBalance().getBalance())));
+        verify(cardRepository, never()).save(any(Card.class));
+    }
+
+    @Test
+    void createBatch_shouldRetryWholeBatchWithNewNumbers_whenNumberAlreadyIssued() {
+        User owner = User.builder()
+                .id(1L)
+                .login("first")
+                .build();
+        Map<Long, Integer> cardsByOwner = Map.of(1L, 2);
+
+        when(userService.findUsersByIds(cardsByOwner.keySet())).thenReturn(Map.of(1L, owner));
+        when(cardNumberAllocator.allocate()).thenReturn("2200700000000001", "2200700000000019",
+                "2200700000000027", "2200700000000035");
+        when(cardRepository.saveAllAndFlush(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate card_number_hash"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(cardBalanceRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactionRetryService.execute(any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+
+        List<Card> result = cardAdminService.createBatch(cardsByOwner);
+
+        assertEquals(List.of("2200700000000027", "2200700000000035"), result.stream().map(Card::getCardNumber).toList());
+        verify(cardRepository, times(2)).saveAllAndFlush(anyList());
+        verify(cardBalanceRepository, times(1)).saveAll(anyList());
+    }
+
     @Test
     void blockCard_shouldUpdateCard() {
         when(cardRepository.findById(anyLong())).thenReturn(Optional.of(card));
@@ -131,14 +263,181 @@ public class CardAdminServiceTest {
     }
 
     @Test
-    void updateForExpiredCard_shouldUpdateCard() {
-        when(cardRepository.findAllByExpiryDateBefore(any(LocalDate.class))).thenReturn(List.of(card));
+    void updateForExpiredCard_shouldUpdateCardsInIdRanges() {
+        LocalDate now = LocalDate.now();
+        IdRange range = new IdRange(5L, 25L);
+        when(cardRepository.findExpiringIdRange(now, CardStatus.EXPIRED)).thenReturn(range);
+        when(cardRepository.markExpired(anyLong(), anyLong(), eq(now), eq(CardStatus.EXPIRED))).thenReturn(10, 8);
+        when(rangeJobRunner.run(eq(CardAdminService.EXPIRE_CARDS_JOB), eq(now.toString()), eq(range), eq(10L), any()))
+                .thenAnswer(invocation -> {
+                    RangeJobRunner.RangeTask task = invocation.getArgument(4);
+                    return (long) task.process(5, 14) + task.process(15, 25);
+                });
+
+        long updated = cardAdminService.updateForExpiredCard(now, 10);
+
+        assertEquals(18, updated);
+        assertEquals(18, meterRegistry.get("cards.expired").counter().count());
+        verify(cardRepository, times(1)).markExpired(5L, 14L, now, CardStatus.EXPIRED);
+        verify(cardRepository, times(1)).markExpired(15L, 25L, now, CardStatus.EXPIRED);
+    }
+
+    @Test
+    void updateForExpiredCard_shouldSkipUpdate_whenNoExpiredCards() {
+        LocalDate now = LocalDate.now();
+        when(cardRepository.findExpiringIdRange(now, CardStatus.EXPIRED)).thenReturn(new IdRange(null, null));
+
+        assertEquals(0, cardAdminService.updateForExpiredCard(now, 10));
+        verify(cardRepository, never()).markExpired(anyLong(), anyLong(), any(), any());
+        verifyNoInteractions(rangeJobRunner);
+    }
+
+    @Test
+    void estimateCount_shouldReturnPlannerEstimate() {
+        when(tableStatisticsRepository.estimateRowCount("cards")).thenReturn(Optional.of(1000L));
+
+        assertEquals(1000L, cardAdminService.estimateCount());
+        verify(cardRepository, never()).count();
+    }
+
+    @Test
+    void estimateCount_shouldCountExactly_whenEstimateUnavailable() {
+        when(tableStatisticsRepository.estimateRowCount("cards")).thenReturn(Optional.empty());
+        when(cardRepository.count()).thenReturn(2L);
+
+        assertEquals(2L, cardAdminService.estimateCount());
+    }
+
+    @Test
+    void settlePendingCredits_shouldSettleEachCardInOwnTransaction() {
+        when(transferRepository.findCardIdsWithPendingCredits(100)).thenReturn(List.of(1L, 2L));
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transactionRetryService).execute(any(Runnable.class));
+
+        int result = cardAdminService.settlePendingCredits(100);
+
+        assertEquals(2, result);
+        verify(transactionRetryService, times(2)).execute(any(Runnable.class));
+        verify(transferRepository, times(1)).settlePendingCredits(1L);
+        verify(transferRepository, times(1)).settlePendingCredits(2L);
+    }
+
+    @Test
+    void setBalanceStripes_shouldResizeAndCreateStripes() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transactionRetryService).execute(any(Runnable.class));
+        when(cardBalanceRepository.resizeStripes(1L, 8)).thenReturn(1);
+
+        cardAdminService.setBalanceStripes(1L, 8);
+
+        verify(cardBalanceRepository, times(1)).resizeStripes(1L, 8);
+        verify(cardBalanceRepository, times(1)).createStripes(1L, 8);
+    }
+
+    @Test
+    void setBalanceStripes_shouldNotCreateStripes_whenDisabled() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transactionRetryService).execute(any(Runnable.class));
+        when(cardBalanceRepository.resizeStripes(1L, 0)).thenReturn(1);
+
+        cardAdminService.setBalanceStripes(1L, 0);
+
+        verify(cardBalanceRepository, never()).createStripes(anyLong(), anyInt());
+    }
+
+    @Test
+    void setBalanceStripes_shouldThrowException_whenCardNotFound() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transactionRetryService).execute(any(Runnable.class));
+        when(cardBalanceRepository.resizeStripes(1L, 8)).thenReturn(0);
+
+        assertThrows(WrongParameterException.class, () -> cardAdminService.setBalanceStripes(1L, 8));
+        verify(cardBalanceRepository, never()).createStripes(anyLong(), anyInt());
+    }
 
-        cardAdminService.updateForExpiredCard(LocalDate.now());
+    @Test
+    void compactBalanceStripes_shouldCompactEachCardInOwnTransaction() {
+        when(cardBalanceRepository.findCardIdsWithStripedCredits(100)).thenReturn(List.of(1L, 2L));
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transactionRetryService).execute(any(Runnable.class));
+
+        int result = cardAdminService.compactBalanceStripes(100);
+
+        assertEquals(2, result);
+        verify(cardBalanceRepository, times(1)).compactStripes(1L);
+        verify(cardBalanceRepository, times(1)).compactStripes(2L);
+    }
+
+    @Test
+    void backfillCardColumns_shouldFillLast4AndHashInBatches() {
+        Card other = Card.builder()
+                .id(12L)
+                .cardNumber("5678")
+                .build();
+        when(cardRepository.findWithoutNumberColumns(eq(0L), any(Limit.class))).thenReturn(List.of(card, other));
+        when(cardRepository.findWithoutNumberColumns(eq(12L), any(Limit.class))).thenReturn(List.of());
+        when(blindIndexer.hash(anyString())).thenAnswer(invocation -> "hash" + invocation.getArgument(0));
+        when(transactionRetryService.execute(any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+
+        int result = cardAdminService.backfillCardColumns(2);
+
+        assertEquals(2, result);
+        assertEquals("1234", card.getCardLast4());
+        assertEquals("hash1234", card.getCardNumberHash());
+        assertEquals("5678", other.getCardLast4());
+        assertEquals("hash5678", other.getCardNumberHash());
+        verify(transactionRetryService, times(2)).execute(any(Supplier.class));
+    }
 
-        verify(cardRepository, times(1)).findAllByExpiryDateBefore(any(LocalDate.class));
-        verify(cardRepository, times(1)).saveAll(anyList());
+    @Test
+    void backfillCardColumns_shouldLeaveHashEmpty_whenNumberDuplicated() {
+        Card duplicate = Card.builder()
+                .id(12L)
+                .cardNumber("1234")
+                .build();
+        Card issued = Card.builder()
+                .id(13L)
+                .cardNumber("5678")
+                .build();
+        when(cardRepository.findWithoutNumberColumns(eq(0L), any(Limit.class))).thenReturn(List.of(card, duplicate, issued));
+        when(cardRepository.findCardNumberHashesIn(anyCollection()))
+                .thenReturn(List.of(new CardNumberHash(5L, "hash5678")));
+        when(blindIndexer.hash(anyString())).thenAnswer(invocation -> "hash" + invocation.getArgument(0));
+        when(transactionRetryService.execute(any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+
+        int result = cardAdminService.backfillCardColumns(10);
+
+        assertEquals(3, result);
+        assertEquals("hash1234", card.getCardNumberHash());
+        assertNull(duplicate.getCardNumberHash());
+        assertEquals("1234", duplicate.getCardLast4());
+        assertNull(issued.getCardNumberHash());
+        assertEquals("5678", issued.getCardLast4());
     }
 
+    @Test
+    void reencryptLegacyCardNumbers_shouldRewriteLegacyValues() {
+        when(cardRepository.findLegacyEncryptedIds(2)).thenReturn(List.of(1L));
+        when(cardRepository.findAllById(List.of(1L))).thenReturn(List.of(card));
+        when(aesGcmEncryptor.encrypt("1234")).thenReturn("v1:encrypted");
+        when(transactionRetryService.execute(any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+
+        int result = cardAdminService.reencryptLegacyCardNumbers(2);
 
+        assertEquals(1, result);
+        verify(cardRepository, times(1)).updateEncryptedCardNumber(11L, "v1:encrypted");
+    }
 }
@@ -1,16 +1,21 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.request.TotalMode;
+import com.example.bankcards.dto.request.card.BatchTransferRequestDTO;
 import com.example.bankcards.dto.request.card.CardRequestDTO;
 import com.example.bankcards.dto.request.card.NewCardRequestDTO;
 import com.example.bankcards.dto.request.card.TransferRequestDTO;
 import com.example.bankcards.dto.response.MessageResponseDTO;
 import com.example.bankcards.dto.response.PagedResponseDTO;
 import com.example.bankcards.dto.response.card.BalanceResponseDTO;
+import com.example.bankcards.dto.response.card.BatchTransferResponseDTO;
 import com.example.bankcards.dto.response.card.CardResponseDTO;
 import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.CardBalance;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.WrongParameterException;
+import com.example.bankcards.repository.projection.CardSummary;
+import com.example.bankcards.util.PageCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -22,13 +27,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -40,6 +49,12 @@ public class CardApiServiceTest {
     private CardAdminService cardAdminService;
     @Mock
     private CardUserService cardUserService;
+    @Mock
+    private TransactionRetryService transactionRetryService;
+    @Mock
+    private IdempotencyService idempotencyService;
+    @Mock
+    private TransferLaneExecutor transferLaneExecutor;
 
     @InjectMocks
     private CardApiService cardApiService;
@@ -68,29 +83,64 @@ public class CardApiServiceTest {
         int size = 10;
         Pageable expectedPageable = PageRequest.of(page, size);
 
-        Page<Card> cards = new PageImpl<>(List.of(card), expectedPageable, 1);
+        Page<CardSummary> cards = new PageImpl<>(List.of(
+                new CardSummary(1L, "5678", "test", LocalDate.now(), CardStatus.ACTIVE)), expectedPageable, 1);
 
         when(cardUserService.getMyCards(ArgumentMatchers.<Specification<Card>>any(), eq(expectedPageable))).thenReturn(cards);
 
-        PagedResponseDTO<CardResponseDTO> responseDTO = cardApiService.getMyCards(user, page, size, null, null, null, null, null, null);
+        PagedResponseDTO<CardResponseDTO> responseDTO = cardApiService.getMyCards(user, page, size, null, null, null, null, null, null, null, null);
 
         assertEquals(1, responseDTO.totalElements());
         assertEquals(1L, responseDTO.content().get(0).id());
+        assertEquals("**** **** **** 5678", responseDTO.content().get(0).number());
         verify(cardUserService, times(1)).getMyCards(ArgumentMatchers.<Specification<Card>>any(), any(Pageable.class));
     }
 
     @Test
-    void getBalanceByCard_shouldReturnBalanceResponseDTO() {
-        CardBalance cardBalance = CardBalance.builder()
-                .card(card)
-                .balance(BigDecimal.TEN)
-                .build();
+    void getMyCards_shouldReturnNextCursor_whenMoreCardsExist() {
+        List<CardSummary> cards = List.of(
+                new CardSummary(3L, "1111", "test", LocalDate.now(), CardStatus.ACTIVE),
+                new CardSummary(5L, "2222", "test", LocalDate.now(), CardStatus.ACTIVE),
+                new CardSummary(8L, "3333", "test", LocalDate.now(), CardStatus.ACTIVE));
+
+        when(cardUserService.getMyCardsAfter(ArgumentMatchers.<Specification<Card>>any(), isNull(), eq(3))).thenReturn(cards);
 
-        when(cardUserService.getCardBalance(any(User.class), anyLong())).thenReturn(cardBalance);
+        PagedResponseDTO<CardResponseDTO> responseDTO = cardApiService.getMyCards(user, 0, 2, "", null, null, null, null, null, null, null);
+
+        assertEquals(2, responseDTO.content().size());
+        assertNull(responseDTO.totalElements());
+        assertEquals(PageCursor.encode(5L), responseDTO.nextCursor());
+        verify(cardUserService, never()).getMyCards(ArgumentMatchers.<Specification<Card>>any(), any(Pageable.class));
+    }
+
+    @Test
+    void getMyCards_shouldSeekAfterCursorAndReturnNoCursor_whenLastPage() {
+        List<CardSummary> cards = List.of(new CardSummary(8L, "3333", "test", LocalDate.now(), CardStatus.ACTIVE));
+
+        when(cardUserService.getMyCardsAfter(ArgumentMatchers.<Specification<Card>>any(), eq(5L), eq(3))).thenReturn(cards);
+
+        PagedResponseDTO<CardResponseDTO> responseDTO = cardApiService.getMyCards(user, 0, 2, PageCursor.encode(5L), null, null, null, null, null, null, null);
+
+        assertEquals(1, responseDTO.content().size());
+        assertEquals(8L, responseDTO.content().get(0).id());
+        assertNull(responseDTO.nextCursor());
+    }
+
+    @Test
+    void getAllCards_shouldThrowException_whenCursorIsInvalid() {
+
+        assertThrows(WrongParameterException.class,
+                () -> cardApiService.getAllCards(0, 2, "not-a-cursor", null, null, null, null, null, null, null, null));
+        verifyNoInteractions(cardAdminService);
+    }
+
+    @Test
+    void getBalanceByCard_shouldReturnBalanceResponseDTO() {
+        when(cardUserService.getCardBalance(any(User.class), anyLong())).thenReturn(BigDecimal.TEN);
 
         BalanceResponseDTO result = cardApiService.getBalanceByCard(user, card.getId());
 
-        assertEquals(cardBalance.getBalance(), result.balance());
+        assertEquals(BigDecimal.TEN, result.balance());
         verify(cardUserService, times(1)).getCardBalance(any(User.class), anyLong());
     }
 
@@ -98,9 +148,54 @@ public class CardApiServiceTest {
     void transfer_shouldReturnMessageResponseDTO() {
         TransferRequestDTO requestDTO = new TransferRequestDTO(1L, 2L, BigDecimal.TEN);
 
-        MessageResponseDTO messageResponseDTO = cardApiService.transfer(user, requestDTO);
+        when(transferLaneExecutor.execute(eq(1L), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transactionRetryService).execute(any(Runnable.class));
+
+        MessageResponseDTO messageResponseDTO = cardApiService.transfer(user, requestDTO, null);
+
+        assertEquals("Перевод осуществлен успешно", messageResponseDTO.message());
+        verify(cardUserService, times(1)).transferMoney(user, 1L, 2L, BigDecimal.TEN);
+        verifyNoInteractions(idempotencyService);
+    }
+
+    @Test
+    void transfer_shouldUseIdempotencyService_whenKeyPresent() {
+        TransferRequestDTO requestDTO = new TransferRequestDTO(1L, 2L, new BigDecimal("10.00"));
+
+        when(transferLaneExecutor.execute(eq(1L), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        when(idempotencyService.execute(eq(user.getId()), eq("key-1"), eq("1:2:10"), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<String>>getArgument(3).get());
+
+        MessageResponseDTO messageResponseDTO = cardApiService.transfer(user, requestDTO, "key-1");
 
         assertEquals("Перевод осуществлен успешно", messageResponseDTO.message());
+        verify(cardUserService, times(1)).transferMoney(user, 1L, 2L, new BigDecimal("10.00"));
+        verifyNoInteractions(transactionRetryService);
+    }
+
+    @Test
+    void transferBatch_shouldReturnResultPerItem() {
+        BatchTransferRequestDTO requestDTO = new BatchTransferRequestDTO(List.of(
+                new TransferRequestDTO(1L, 2L, BigDecimal.TEN),
+                new TransferRequestDTO(2L, 1L, BigDecimal.ONE)), false);
+
+        when(transactionRetryService.execute(ArgumentMatchers.<Supplier<Object>>any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        when(cardUserService.transferMoneyBatch(eq(user), anyList(), eq(false)))
+                .thenReturn(Map.of(1, "Недостаточно средств на карте списания"));
+
+        BatchTransferResponseDTO responseDTO = cardApiService.transferBatch(user, requestDTO);
+
+        assertEquals(1, responseDTO.succeeded());
+        assertEquals(1, responseDTO.failed());
+        assertTrue(responseDTO.results().get(0).success());
+        assertFalse(responseDTO.results().get(1).success());
+        assertEquals("Недостаточно средств на карте списания", responseDTO.results().get(1).message());
     }
 
     @Test
@@ -118,17 +213,66 @@ public class CardApiServiceTest {
         int size = 10;
         Pageable expectedPageable = PageRequest.of(page, size);
 
-        Page<Card> cards = new PageImpl<>(List.of(card), expectedPageable, 1);
+        Page<CardSummary> cards = new PageImpl<>(List.of(
+                new CardSummary(1L, "5678", "test", LocalDate.now(), CardStatus.ACTIVE)), expectedPageable, 1);
 
         when(cardAdminService.getAll(ArgumentMatchers.<Specification<Card>>any(), eq(expectedPageable))).thenReturn(cards);
 
-        PagedResponseDTO<CardResponseDTO> responseDTO = cardApiService.getAllCards(page, size, null, null, null, null, null, null, null);
+        PagedResponseDTO<CardResponseDTO> responseDTO = cardApiService.getAllCards(page, size, null, null, null, null, null, null, null, null, null);
 
         assertEquals(1, responseDTO.totalElements());
         assertEquals(1L, responseDTO.content().get(0).id());
+        assertEquals("**** **** **** 5678", responseDTO.content().get(0).number());
         verify(cardAdminService, times(1)).getAll(ArgumentMatchers.<Specification<Card>>any(), any(Pageable.class));
     }
 
+    @Test
+    void getAllCards_shouldNotCount_whenTotalModeNone() {
+        Pageable pageable = PageRequest.of(0, 1);
+        Slice<CardSummary> cards = new SliceImpl<>(List.of(
+                new CardSummary(1L, "5678", "test", LocalDate.now(), CardStatus.ACTIVE)), pageable, true);
+
+        when(cardAdminService.getAllSlice(ArgumentMatchers.<Specification<Card>>any(), eq(pageable))).thenReturn(cards);
+
+        PagedResponseDTO<CardResponseDTO> responseDTO = cardApiService.getAllCards(0, 1, null, TotalMode.NONE, null, null, null, null, null, null, null);
+
+        assertNull(responseDTO.totalElements());
+        assertTrue(responseDTO.hasNext());
+        verify(cardAdminService, never()).getAll(ArgumentMatchers.<Specification<Card>>any(), any(Pageable.class));
+        verify(cardAdminService, never()).estimateCount();
+    }
+
+    @Test
+    void getAllCards_shouldReturnEstimate_whenTotalModeEstimateWithoutFilters() {
+        Pageable pageable = PageRequest.of(0, 1);
+        Slice<CardSummary> cards = new SliceImpl<>(List.of(
+                new CardSummary(1L, "5678", "test", LocalDate.now(), CardStatus.ACTIVE)), pageable, true);
+
+        when(cardAdminService.getAllSlice(ArgumentMatchers.<Specification<Card>>any(), eq(pageable))).thenReturn(cards);
+        when(cardAdminService.estimateCount()).thenReturn(1000L);
+
+        PagedResponseDTO<CardResponseDTO> responseDTO = cardApiService.getAllCards(0, 1, null, TotalMode.ESTIMATE, null, null, null, null, null, null, null);
+
+        assertEquals(1000L, responseDTO.totalElements());
+        assertTrue(responseDTO.hasNext());
+        verify(cardAdminService, never()).getAll(ArgumentMatchers.<Specification<Card>>any(), any(Pageable.class));
+    }
+
+    @Test
+    void getAllCards_shouldCountExactly_whenTotalModeEstimateWithFilters() {
+        Pageable pageable = PageRequest.of(0, 10);
+        Page<CardSummary> cards = new PageImpl<>(List.of(
+                new CardSummary(1L, "5678", "test", LocalDate.now(), CardStatus.ACTIVE)), pageable, 1);
+
+        when(cardAdminService.getAll(ArgumentMatchers.<Specification<Card>>any(), eq(pageable))).thenReturn(cards);
+
+        PagedResponseDTO<CardResponseDTO> responseDTO = cardApiService.getAllCards(0, 10, null, TotalMode.ESTIMATE, null, null, null, CardStatus.ACTIVE, null, null, null);
+
+        assertEquals(1L, responseDTO.totalElements());
+        assertFalse(responseDTO.hasNext());
+        verify(cardAdminService, never()).estimateCount();
+    }
+
     @Test
     void createNewCard_shouldReturnCardResponseDTO() {
         NewCardRequestDTO requestDTO = new NewCardRequestDTO(1L);
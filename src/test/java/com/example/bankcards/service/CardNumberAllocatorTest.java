@@ -0,0 +1,73 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.projection.CardNumberHash;
+import com.example.bankcards.util.BlindIndexer;
+import com.example.bankcards.util.CardUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CardNumberAllocatorTest {
+
+    private final BlindIndexer blindIndexer = new BlindIndexer("secret", "salt", 1000);
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Test
+    void allocate_shouldReturnLuhnValidNumberInBinRange() {
+        CardNumberAllocator allocator = new CardNumberAllocator(blindIndexer, cardRepository,
+                "220070", "220079", 16, 1000, 0.0001, 10);
+
+        for (int i = 0; i < 100; i++) {
+            String cardNumber = allocator.allocate();
+
+            assertEquals(16, cardNumber.length());
+            assertTrue(CardUtil.isLuhnValid(cardNumber));
+            int bin = Integer.parseInt(cardNumber.substring(0, 6));
+            assertTrue(bin >= 220070 && bin <= 220079);
+        }
+    }
+
+    @Test
+    void allocate_shouldNotReturnIssuedNumber() {
+        CardNumberAllocator allocator = new CardNumberAllocator(blindIndexer, cardRepository,
+                "220070", "220071", 7, 100, 0.0001, 10);
+
+        Set<String> cardNumbers = Set.of(allocator.allocate(), allocator.allocate());
+
+        assertEquals(Set.of("2200707", "2200715"), cardNumbers);
+        assertThrows(IllegalStateException.class, allocator::allocate);
+    }
+
+    @Test
+    void warmUp_shouldSkipNumbersOfExistingCards() {
+        CardNumberAllocator allocator = new CardNumberAllocator(blindIndexer, cardRepository,
+                "220070", "220071", 7, 100, 0.0001, 10);
+        when(cardRepository.findCardNumberHashes(0L, Limit.of(1)))
+                .thenReturn(List.of(new CardNumberHash(5L, blindIndexer.hash("2200707"))));
+        when(cardRepository.findCardNumberHashes(5L, Limit.of(1))).thenReturn(List.of());
+
+        int result = allocator.warmUp(1);
+
+        assertEquals(1, result);
+        assertEquals("2200715", allocator.allocate());
+        assertThrows(IllegalStateException.class, allocator::allocate);
+    }
+
+    @Test
+    void constructor_shouldThrowException_whenBinRangeInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new CardNumberAllocator(blindIndexer, cardRepository,
+                "220079", "220070", 16, 1000, 0.0001, 10));
+    }
+}
@@ -1,15 +1,19 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.CardBalance;
+import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.WrongParameterException;
 import com.example.bankcards.repository.CardBalanceRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.projection.CardSummary;
+import com.example.bankcards.repository.TransferJdbcRepository;
+import com.example.bankcards.repository.TransferRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -19,8 +23,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -34,6 +41,10 @@ public class CardUserServiceTest {
     private CardRepository cardRepository;
     @Mock
     private CardBalanceRepository cardBalanceRepository;
+    @Mock
+    private TransferRepository transferRepository;
+    @Mock
+    private TransferJdbcRepository transferJdbcRepository;
 
     @InjectMocks
     private CardUserService cardUserService;
@@ -57,56 +68,47 @@ public class CardUserServiceTest {
 
     @Test
     void getMyCards_shouldReturnPageOfCards() {
-        Page<Card> cardPage = new PageImpl<>(List.of(card));
+        Page<CardSummary> cardPage = new PageImpl<>(List.of(
+                new CardSummary(card.getId(), "1234", "test", LocalDate.now(), CardStatus.ACTIVE)));
         Specification<Card> spec = (root, query, builder) -> null;
 
-        when(cardRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(cardPage);
+        when(cardRepository.findSummaries(any(Specification.class), any(Pageable.class))).thenReturn(cardPage);
 
-        Page<Card> result = cardUserService.getMyCards(spec, Pageable.unpaged());
+        Page<CardSummary> result = cardUserService.getMyCards(spec, Pageable.unpaged());
 
         assertNotNull(result);
         assertEquals(cardPage.getTotalElements(), result.getTotalElements());
-        assertEquals(cardPage.getContent().get(0).getId(), result.getContent().get(0).getId());
-        assertEquals(cardPage.getContent().get(0).getCardNumber(), result.getContent().get(0).getCardNumber());
+        assertEquals(cardPage.getContent().get(0).id(), result.getContent().get(0).id());
+        assertEquals(cardPage.getContent().get(0).cardLast4(), result.getContent().get(0).cardLast4());
+        verify(cardRepository, never()).findAll(any(Specification.class), any(Pageable.class));
     }
 
     @Test
     void getCardBalance_shouldReturnCardBalance() {
-        CardBalance cardBalance = CardBalance.builder()
-                .card(card)
-                .balance(BigDecimal.TEN)
-                .build();
-        card.setOwner(user);
-        card.setBalance(cardBalance);
-        card.setCardStatus(CardStatus.ACTIVE);
-
-        when(cardRepository.findByIdAndOwner(anyLong(), any(User.class))).thenReturn(Optional.of(card));
-
-        CardBalance result = cardUserService.getCardBalance(user, 1L);
+        when(cardRepository.existsByIdAndOwnerAndCardStatus(1L, user, CardStatus.ACTIVE)).thenReturn(true);
+        when(cardBalanceRepository.findAvailableBalance(1L)).thenReturn(Optional.of(BigDecimal.TEN));
 
-        assertEquals(cardBalance.getCard().getId(), result.getCard().getId());
-        assertEquals(cardBalance.getBalance(), result.getBalance());
+        BigDecimal result = cardUserService.getCardBalance(user, 1L);
 
-        verify(cardRepository, times(1)).findByIdAndOwner(anyLong(), any(User.class));
+        assertEquals(BigDecimal.TEN, result);
+        verify(cardRepository, never()).findByIdAndOwner(anyLong(), any(User.class));
     }
 
     @Test
     void getCardBalance_shouldThrowException_whenCardNotFound() {
+        when(cardRepository.existsByIdAndOwnerAndCardStatus(anyLong(), any(User.class), any(CardStatus.class))).thenReturn(false);
         when(cardRepository.findByIdAndOwner(anyLong(), any(User.class))).thenReturn(Optional.empty());
 
         assertThrows(WrongParameterException.class, () -> cardUserService.getCardBalance(user, 1L));
+        verify(cardBalanceRepository, never()).findAvailableBalance(anyLong());
     }
 
     @Test
     void getCardBalance_shouldThrowException_whenCardNotActive() {
-        CardBalance cardBalance = CardBalance.builder()
-                .card(card)
-                .balance(BigDecimal.TEN)
-                .build();
         card.setOwner(user);
-        card.setBalance(cardBalance);
         card.setCardStatus(CardStatus.BLOCKED);
 
+        when(cardRepository.existsByIdAndOwnerAndCardStatus(anyLong(), any(User.class), any(CardStatus.class))).thenReturn(false);
         when(cardRepository.findByIdAndOwner(anyLong(), any(User.class))).thenReturn(Optional.of(card));
 
         assertThrows(WrongParameterException.class, () -> cardUserService.getCardBalance(user, 1L));
@@ -114,57 +116,117 @@ public class CardUserServiceTest {
 
     @Test
     void transferMoney_shouldTransfer() {
-        CardBalance cardBalance1 = CardBalance.builder()
-                .card(card)
-                .balance(BigDecimal.TEN)
-                .build();
-        Card card2 = Card.builder()
-                .id(12L)
-                .cardNumber("1234")
-                .cardStatus(CardStatus.ACTIVE)
-                .build();
-        CardBalance cardBalance2 = CardBalance.builder()
-                .card(card2)
-                .balance(BigDecimal.ZERO)
-                .build();
-        card.setOwner(user);
-        card2.setOwner(user);
-        card.setBalance(cardBalance1);
-        card2.setBalance(cardBalance2);
+        when(cardRepository.existsByIdAndOwnerAndCardStatus(12L, user, CardStatus.ACTIVE)).thenReturn(true);
+        when(cardBalanceRepository.debit(11L, user.getId(), BigDecimal.ONE, CardStatus.ACTIVE)).thenReturn(1);
+        when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        when(cardRepository.findByIdAndOwner(eq(11L), any(User.class))).thenReturn(Optional.of(card));
-        when(cardRepository.findByIdAndOwner(eq(12L), any(User.class))).thenReturn(Optional.of(card2));
+        cardUserService.transferMoney(user, 11L, 12L, BigDecimal.ONE);
+
+        ArgumentCaptor<Transfer> captor = ArgumentCaptor.forClass(Transfer.class);
+        verify(cardBalanceRepository, times(1)).lockAllInOrder(List.of(11L), user.getId());
+        verify(cardBalanceRepository, times(1)).debit(11L, user.getId(), BigDecimal.ONE, CardStatus.ACTIVE);
+        verify(transferRepository, times(1)).save(captor.capture());
+        assertEquals(11L, captor.getValue().getCardFromId());
+        assertEquals(12L, captor.getValue().getCardToId());
+        assertEquals(BigDecimal.ONE, captor.getValue().getAmount());
+        assertFalse(captor.getValue().isSettled());
+        verify(cardRepository, never()).findByIdAndOwner(anyLong(), any(User.class));
+    }
+
+    @Test
+    void transferMoney_shouldSaveSettledTransfer_whenCardToStriped() {
+        when(cardRepository.existsByIdAndOwnerAndCardStatus(12L, user, CardStatus.ACTIVE)).thenReturn(true);
+        when(cardBalanceRepository.debit(11L, user.getId(), BigDecimal.ONE, CardStatus.ACTIVE)).thenReturn(1);
+        when(cardBalanceRepository.creditStripe(12L, BigDecimal.ONE)).thenReturn(1);
+        when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         cardUserService.transferMoney(user, 11L, 12L, BigDecimal.ONE);
 
-        verify(cardRepository, times(2)).findByIdAndOwner(anyLong(), any(User.class));
-        verify(cardBalanceRepository, times(1)).saveAll(anyList());
+        ArgumentCaptor<Transfer> captor = ArgumentCaptor.forClass(Transfer.class);
+        verify(transferRepository, times(1)).save(captor.capture());
+        assertTrue(captor.getValue().isSettled());
     }
 
     @Test
     void transferMoney_shouldThrowException_whenBalanceLessThanAmount() {
-        CardBalance cardBalance1 = CardBalance.builder()
-                .card(card)
-                .balance(BigDecimal.ONE)
-                .build();
+        card.setOwner(user);
+
+        when(cardRepository.existsByIdAndOwnerAndCardStatus(12L, user, CardStatus.ACTIVE)).thenReturn(true);
+        when(cardBalanceRepository.debit(anyLong(), anyLong(), any(BigDecimal.class), any(CardStatus.class))).thenReturn(0);
+        when(cardRepository.findByIdAndOwner(eq(11L), any(User.class))).thenReturn(Optional.of(card));
+
+        WrongParameterException exception = assertThrows(WrongParameterException.class,
+                () -> cardUserService.transferMoney(user, 11L, 12L, BigDecimal.TEN));
+
+        assertEquals("Недостаточно средств на карте списания", exception.getMessage());
+        verify(transferRepository, never()).save(any(Transfer.class));
+    }
+
+    @Test
+    void transferMoney_shouldThrowException_whenCardFromNotOwned() {
+        when(cardRepository.existsByIdAndOwnerAndCardStatus(12L, user, CardStatus.ACTIVE)).thenReturn(true);
+        when(cardBalanceRepository.debit(anyLong(), anyLong(), any(BigDecimal.class), any(CardStatus.class))).thenReturn(0);
+        when(cardRepository.findByIdAndOwner(eq(11L), any(User.class))).thenReturn(Optional.empty());
+
+        WrongParameterException exception = assertThrows(WrongParameterException.class,
+                () -> cardUserService.transferMoney(user, 11L, 12L, BigDecimal.ONE));
+
+        assertEquals("Пользователь не является владельцем карты", exception.getMessage());
+    }
+
+    @Test
+    void transferMoney_shouldThrowException_whenCardToNotActive() {
         Card card2 = Card.builder()
                 .id(12L)
                 .cardNumber("1234")
-                .cardStatus(CardStatus.ACTIVE)
-                .build();
-        CardBalance cardBalance2 = CardBalance.builder()
-                .card(card2)
-                .balance(BigDecimal.ZERO)
+                .cardStatus(CardStatus.BLOCKED)
                 .build();
-        card.setOwner(user);
-        card2.setOwner(user);
-        card.setBalance(cardBalance1);
-        card2.setBalance(cardBalance2);
 
-        when(cardRepository.findByIdAndOwner(eq(11L), any(User.class))).thenReturn(Optional.of(card));
+        when(cardRepository.existsByIdAndOwnerAndCardStatus(12L, user, CardStatus.ACTIVE)).thenReturn(false);
         when(cardRepository.findByIdAndOwner(eq(12L), any(User.class))).thenReturn(Optional.of(card2));
 
-        assertThrows(WrongParameterException.class, () -> cardUserService.transferMoney(user, 11L, 12L, BigDecimal.TEN));
+        WrongParameterException exception = assertThrows(WrongParameterException.class,
+                () -> cardUserService.transferMoney(user, 11L, 12L, BigDecimal.ONE));
+
+        assertEquals("Карта не активна", exception.getMessage());
+        verify(cardBalanceRepository, never()).debit(anyLong(), anyLong(), any(BigDecimal.class), any(CardStatus.class));
+    }
+
+    @Test
+    void transferMoneyBatch_shouldReportFailedItems() {
+        List<Transfer> transfers = List.of(
+                Transfer.builder().cardFromId(11L).cardToId(12L).amount(BigDecimal.ONE).build(),
+                Transfer.builder().cardFromId(11L).cardToId(13L).amount(BigDecimal.ONE).build(),
+                Transfer.builder().cardFromId(12L).cardToId(11L).amount(BigDecimal.TEN).build());
+
+        when(cardRepository.findIdsByOwnerAndStatus(anyCollection(), eq(user), eq(CardStatus.ACTIVE))).thenReturn(Set.of(11L, 12L));
+        when(transferJdbcRepository.debitAll(eq(user.getId()), anyList())).thenReturn(new int[]{1, 0});
+        when(transferJdbcRepository.creditStripes(anyList())).thenReturn(new int[]{1});
+
+        Map<Integer, String> failures = cardUserService.transferMoneyBatch(user, transfers, false);
+
+        assertEquals(2, failures.size());
+        assertEquals("Пользователь не является владельцем карты или карта не активна", failures.get(1));
+        assertEquals("Недостаточно средств на карте списания", failures.get(2));
+        verify(cardBalanceRepository, times(1)).lockAllInOrder(List.of(11L, 12L), user.getId());
+        verify(transferJdbcRepository, times(1)).debitAll(user.getId(), List.of(transfers.get(0), transfers.get(2)));
+        verify(transferJdbcRepository, times(1)).insertAll(List.of(transfers.get(0)));
+        assertTrue(transfers.get(0).isSettled());
+    }
+
+    @Test
+    void transferMoneyBatch_shouldThrowException_whenAllOrNothingAndItemFails() {
+        List<Transfer> transfers = List.of(
+                Transfer.builder().cardFromId(11L).cardToId(12L).amount(BigDecimal.ONE).build());
+
+        when(cardRepository.findIdsByOwnerAndStatus(anyCollection(), eq(user), eq(CardStatus.ACTIVE))).thenReturn(Set.of(11L, 12L));
+        when(transferJdbcRepository.debitAll(eq(user.getId()), anyList())).thenReturn(new int[]{0});
+
+        WrongParameterException exception = assertThrows(WrongParameterException.class,
+                () -> cardUserService.transferMoneyBatch(user, transfers, true));
+
+        assertEquals("Перевод №0 не выполнен: Недостаточно средств на карте списания", exception.getMessage());
+        verify(transferJdbcRepository, never()).insertAll(anyList());
     }
 
     @Test
@@ -4,7 +4,10 @@ import com.example.bankcards.entity.RefreshToken;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserNotAuthenticatedException;
 import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.security.AccessTokenCache;
 import com.example.bankcards.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -18,7 +21,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpHeaders;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,6 +40,8 @@ public class CookieServiceTest {
     @Mock
     private UserService userService;
     @Mock
+    private AccessTokenCache accessTokenCache;
+    @Mock
     private HttpServletResponse response;
     @Mock
     private HttpServletRequest request;
@@ -144,6 +153,26 @@ public class CookieServiceTest {
         assertTrue(refreshHeader.contains("Max-Age=0"));
     }
 
+    @Test
+    void deleteAuthCookies_shouldRevokeAccessToken() {
+        Cookie[] cookies = new Cookie[2];
+        cookies[0] = new Cookie("access_token", "accessToken");
+        cookies[1] = new Cookie("refresh_token", "refreshTokenWithSign");
+        Instant expiration = Instant.now().plusSeconds(600).truncatedTo(ChronoUnit.SECONDS);
+        Claims claims = Jwts.claims()
+                .expiration(Date.from(expiration))
+                .build();
+
+        when(request.getCookies()).thenReturn(cookies);
+        when(jwtTokenProvider.parseAccessToken("accessToken")).thenReturn(Optional.of(claims));
+        when(jwtTokenProvider.extractUUIDRefreshToken("refreshTokenWithSign")).thenReturn("refreshToken");
+
+        cookieService.deleteAuthCookies(request, response);
+
+        verify(accessTokenCache, times(1)).revoke("accessToken", expiration);
+        verify(refreshTokenService, times(1)).delete("refreshToken");
+    }
+
     @Test
     void deleteAuthCookies_shouldThrowException_whenCookieNotFound() {
         when(request.getCookies()).thenReturn(null);
@@ -0,0 +1,150 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.IdempotencyKey;
+import com.example.bankcards.exception.WrongParameterException;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+    @Mock
+    private TransactionRetryService transactionRetryService;
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    public void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyKeyRepository, transactionRetryService, 100, 60000);
+        when(transactionRetryService.execute(ArgumentMatchers.<Supplier<Object>>any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(anyLong(), anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void execute_shouldRunActionOnce_whenKeyRepeated() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String first = idempotencyService.execute(1L, "key", "1:2:10", () -> "ok" + calls.incrementAndGet());
+        String second = idempotencyService.execute(1L, "key", "1:2:10", () -> "ok" + calls.incrementAndGet());
+
+        assertEquals("ok1", first);
+        assertEquals("ok1", second);
+        assertEquals(1, calls.get());
+        verify(idempotencyKeyRepository, times(1)).saveAndFlush(any(IdempotencyKey.class));
+        verify(idempotencyKeyRepository, times(1)).findByUserIdAndIdempotencyKey(1L, "key");
+    }
+
+    @Test
+    void execute_shouldThrowException_whenKeyReusedWithOtherRequest() {
+        idempotencyService.execute(1L, "key", "1:2:10", () -> "ok");
+
+        WrongParameterException exception = assertThrows(WrongParameterException.class,
+                () -> idempotencyService.execute(1L, "key", "1:2:20", () -> "ok"));
+
+        assertEquals("Ключ идемпотентности уже использован для запроса с другими параметрами", exception.getMessage());
+    }
+
+    @Test
+    void execute_shouldReturnStoredResponse_whenKeyFoundInDatabase() {
+        IdempotencyKey stored = IdempotencyKey.builder()
+                .userId(1L)
+                .idempotencyKey("key")
+                .requestHash(sha256("1:2:10"))
+                .responseMessage("stored")
+                .build();
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(1L, "key")).thenReturn(Optional.of(stored));
+
+        String result = idempotencyService.execute(1L, "key", "1:2:10", () -> fail("Действие не должно выполняться"));
+
+        assertEquals("stored", result);
+        verify(transactionRetryService, never()).execute(ArgumentMatchers.<Supplier<Object>>any());
+    }
+
+    @Test
+    void execute_shouldReturnStoredResponse_whenConcurrentInsertWins() {
+        IdempotencyKey stored = IdempotencyKey.builder()
+                .requestHash(sha256("1:2:10"))
+                .responseMessage("stored")
+                .build();
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(1L, "key"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(stored));
+        when(idempotencyKeyRepository.saveAndFlush(any(IdempotencyKey.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        String result = idempotencyService.execute(1L, "key", "1:2:10", () -> "ok");
+
+        assertEquals("stored", result);
+    }
+
+    @Test
+    void execute_shouldCoalesceConcurrentRequests() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> action = () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "ok";
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> idempotencyService.execute(1L, "key", "1:2:10", action));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> second = executor.submit(() -> idempotencyService.execute(1L, "key", "1:2:10", action));
+            release.countDown();
+
+            assertEquals("ok", first.get(5, TimeUnit.SECONDS));
+            assertEquals("ok", second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String sha256(String payload) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.WrongParameterException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHashingExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        passwordHashingExecutor.shutdown();
+    }
+
+    @Test
+    void execute_shouldRunInHashingThread() {
+        passwordHashingExecutor = new PasswordHashingExecutor(2, 10, meterRegistry);
+
+        String threadName = passwordHashingExecutor.execute(() -> Thread.currentThread().getName());
+
+        assertTrue(threadName.startsWith("password-hashing-"));
+    }
+
+    @Test
+    void execute_shouldRethrowTaskException() {
+        passwordHashingExecutor = new PasswordHashingExecutor(1, 10, meterRegistry);
+
+        WrongParameterException exception = assertThrows(WrongParameterException.class,
+                () -> passwordHashingExecutor.execute(() -> {
+                    throw new WrongParameterException("Неверный логин или пароль");
+                }));
+
+        assertEquals("Неверный логин или пароль", exception.getMessage());
+    }
+
+    @Test
+    void execute_shouldThrowException_whenQueueFull() throws Exception {
+        passwordHashingExecutor = new PasswordHashingExecutor(1, 1, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            clients.submit(() -> passwordHashingExecutor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            clients.submit(() -> passwordHashingExecutor.execute(() -> null));
+            while (meterRegistry.get("auth.hashing.queue.size").gauge().value() < 1) {
+                Thread.onSpinWait();
+            }
+
+            assertThrows(RejectedExecutionException.class, () -> passwordHashingExecutor.execute(() -> null));
+            assertEquals(1, meterRegistry.get("auth.hashing.active").gauge().value());
+        } finally {
+            release.countDown();
+            clients.shutdown();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.projection.IdRange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RangeJobRunnerTest {
+
+    private static final String RUN = "2026-01-01";
+
+    @Mock
+    private SchedulerLeaseService schedulerLeaseService;
+    @Mock
+    private DataSource dataSource;
+
+    private RangeJobRunner rangeJobRunner;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(schedulerLeaseService.holdsLease("job")).thenReturn(true);
+        lenient().when(schedulerLeaseService.saveCheckpoint(eq("job"), eq(RUN), any())).thenReturn(true);
+        rangeJobRunner = new RangeJobRunner(schedulerLeaseService, dataSource, 4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        rangeJobRunner.shutdown();
+    }
+
+    @Test
+    void run_shouldProcessEveryRangeOnceAndClearCheckpoint() {
+        List<Long> starts = new CopyOnWriteArrayList<>();
+
+        long rows = rangeJobRunner.run("job", RUN, new IdRange(1L, 95L), 10, (fromId, toId) -> {
+            starts.add(fromId);
+            return (int) (toId - fromId + 1);
+        });
+
+        assertEquals(95, rows);
+        assertEquals(10, starts.size());
+        assertEquals(10, Set.copyOf(starts).size());
+        verify(schedulerLeaseService, times(1)).saveCheckpoint("job", RUN, 95L);
+        verify(schedulerLeaseService, times(1)).saveCheckpoint("job", RUN, null);
+    }
+
+    @Test
+    void run_shouldProcessRangesInParallel() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        rangeJobRunner.run("job", RUN, new IdRange(1L, 400L), 10, (fromId, toId) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            threads.add(Thread.currentThread().getName());
+            sleep(5);
+            running.decrementAndGet();
+            return 0;
+        });
+
+        assertTrue(threads.size() > 1);
+        assertTrue(maxRunning.get() <= 4);
+    }
+
+    @Test
+    void run_shouldResumeFromCheckpoint() {
+        when(schedulerLeaseService.findCheckpoint("job", RUN)).thenReturn(50L);
+        List<Long> starts = new CopyOnWriteArrayList<>();
+
+        rangeJobRunner.run("job", RUN, new IdRange(1L, 95L), 10, (fromId, toId) -> {
+            starts.add(fromId);
+            return 0;
+        });
+
+        assertEquals(5, starts.size());
+        assertEquals(51L, starts.stream().mapToLong(Long::longValue).min().orElseThrow());
+    }
+
+    @Test
+    void run_shouldKeepCheckpointBeforeFailedRange() {
+        rangeJobRunner.shutdown();
+        rangeJobRunner = new RangeJobRunner(schedulerLeaseService, dataSource, 1);
+
+        assertThrows(IllegalStateException.class, () -> rangeJobRunner.run("job", RUN, new IdRange(1L, 100L), 10,
+                (fromId, toId) -> {
+                    if (fromId == 31) {
+                        throw new IllegalStateException("Ошибка");
+                    }
+                    return 0;
+                }));
+
+        verify(schedulerLeaseService, times(1)).saveCheckpoint("job", RUN, 30L);
+        verify(schedulerLeaseService, never()).saveCheckpoint(eq("job"), eq(RUN), eq(40L));
+        verify(schedulerLeaseService, never()).saveCheckpoint("job", RUN, null);
+    }
+
+    @Test
+    void run_shouldStopSubmittingRanges_whenLeaseLost() {
+        rangeJobRunner.shutdown();
+        rangeJobRunner = new RangeJobRunner(schedulerLeaseService, dataSource, 1);
+        AtomicInteger processed = new AtomicInteger();
+        when(schedulerLeaseService.holdsLease("job")).thenAnswer(invocation -> processed.get() < 3);
+
+        assertThrows(IllegalStateException.class, () -> rangeJobRunner.run("job", RUN, new IdRange(1L, 100L), 10,
+                (fromId, toId) -> {
+                    processed.incrementAndGet();
+                    return 0;
+                }));
+
+        assertEquals(3, processed.get());
+        verify(schedulerLeaseService, never()).saveCheckpoint("job", RUN, null);
+    }
+
+    @Test
+    void run_shouldStopSavingCheckpoints_whenCheckpointRejected() {
+        rangeJobRunner.shutdown();
+        rangeJobRunner = new RangeJobRunner(schedulerLeaseService, dataSource, 1);
+        when(schedulerLeaseService.saveCheckpoint("job", RUN, 20L)).thenReturn(false);
+        AtomicInteger processed = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> rangeJobRunner.run("job", RUN, new IdRange(1L, 100L), 10,
+                (fromId, toId) -> {
+                    processed.incrementAndGet();
+                    return 0;
+                }));
+
+        assertEquals(2, processed.get());
+        verify(schedulerLeaseService, never()).saveCheckpoint(eq("job"), eq(RUN), eq(30L));
+        verify(schedulerLeaseService, never()).saveCheckpoint("job", RUN, null);
+    }
+
+    @Test
+    void run_shouldSkip_whenRangeEmpty() {
+        assertEquals(0, rangeJobRunner.run("job", RUN, new IdRange(null, null), 10, (fromId, toId) -> 1));
+        verify(schedulerLeaseService, never()).saveCheckpoint(eq("job"), eq(RUN), anyLong());
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,12 +3,17 @@ package com.example.bankcards.service;
 import com.example.bankcards.entity.RefreshToken;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserNotAuthenticatedException;
-import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.repository.RefreshTokenStore;
+import com.example.bankcards.repository.projection.IdRange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Instant;
 import java.util.Optional;
@@ -21,7 +26,13 @@ import static org.mockito.Mockito.*;
 public class RefreshTokenServiceTest {
 
     @Mock
-    private RefreshTokenRepository refreshTokenRepository;
+    private RefreshTokenStore refreshTokenStore;
+    @Mock
+    private UserService userService;
+    @Spy
+    private SimpleMeterRegistry meterRegistry;
+    @Mock
+    private RangeJobRunner rangeJobRunner;
 
     @InjectMocks
     private RefreshTokenService refreshTokenService;
@@ -33,12 +44,12 @@ public class RefreshTokenServiceTest {
                 .login("test")
                 .build();
 
-        when(refreshTokenRepository.save(any(RefreshToken.class))).thenAnswer(i -> i.getArguments()[0]);
+        when(refreshTokenStore.save(any(RefreshToken.class))).thenAnswer(i -> i.getArguments()[0]);
 
         RefreshToken result = refreshTokenService.create(user);
 
         assertEquals(user.getId(), result.getUser().getId());
-        verify(refreshTokenRepository, times(1)).save(any(RefreshToken.class));
+        verify(refreshTokenStore, times(1)).save(any(RefreshToken.class));
     }
 
     @Test
@@ -53,7 +64,8 @@ public class RefreshTokenServiceTest {
                 .expiryDate(Instant.now().plusMillis(3600))
                 .build();
 
-        when(refreshTokenRepository.findByToken(anyString())).thenReturn(Optional.of(refreshToken));
+        when(refreshTokenStore.findByToken(anyString())).thenReturn(Optional.of(refreshToken));
+        when(userService.findUserById(1L)).thenReturn(user);
 
         User result = refreshTokenService.getUserByToken("test");
 
@@ -63,7 +75,7 @@ public class RefreshTokenServiceTest {
 
     @Test
     void getUserByToken_shouldThrowException_whenTokenNotFound(){
-        when(refreshTokenRepository.findByToken(anyString())).thenReturn(Optional.empty());
+        when(refreshTokenStore.findByToken(anyString())).thenReturn(Optional.empty());
 
         assertThrows(UserNotAuthenticatedException.class, () -> refreshTokenService.getUserByToken("test"));
     }
@@ -72,10 +84,25 @@ public class RefreshTokenServiceTest {
     void getUserByToken_shouldThrowException_whenExpiryDateBeforeNow(){
 
         RefreshToken refreshToken = RefreshToken.builder()
+                .token("test")
                 .expiryDate(Instant.now().minusMillis(3600))
                 .build();
 
-        when(refreshTokenRepository.findByToken(anyString())).thenReturn(Optional.of(refreshToken));
+        when(refreshTokenStore.findByToken(anyString())).thenReturn(Optional.of(refreshToken));
+
+        assertThrows(UserNotAuthenticatedException.class, () -> refreshTokenService.getUserByToken("test"));
+        verify(refreshTokenStore, times(1)).delete("test");
+    }
+
+    @Test
+    void getUserByToken_shouldThrowException_whenUserDeleted(){
+        RefreshToken refreshToken = RefreshToken.builder()
+                .user(User.builder().id(1L).build())
+                .expiryDate(Instant.now().plusMillis(3600))
+                .build();
+
+        when(refreshTokenStore.findByToken(anyString())).thenReturn(Optional.of(refreshToken));
+        when(userService.findUserById(1L)).thenThrow(new UserNotFoundException("Пользователь не найден"));
 
         assertThrows(UserNotAuthenticatedException.class, () -> refreshTokenService.getUserByToken("test"));
     }
@@ -84,15 +111,37 @@ public class RefreshTokenServiceTest {
     void delete_shouldDeleteRefreshToken() {
         refreshTokenService.delete("test");
 
-        verify(refreshTokenRepository, times(1)).deleteRefreshTokenByToken("test");
+        verify(refreshTokenStore, times(1)).delete("test");
+    }
+
+    @Test
+    void deleteByExpiration_shouldDeleteInIdRanges() {
+        ReflectionTestUtils.setField(refreshTokenService, "purgeChunkSize", 2);
+        Instant expiration = Instant.parse("2026-01-01T10:15:00Z");
+        IdRange range = new IdRange(1L, 4L);
+        when(refreshTokenStore.findExpiredIdRange(expiration)).thenReturn(range);
+        when(refreshTokenStore.deleteExpiredRange(eq(expiration), anyLong(), anyLong())).thenReturn(2, 1);
+        when(rangeJobRunner.run(eq(RefreshTokenService.PURGE_TOKENS_JOB), eq("2026-01-01T00:00:00Z"), eq(range), eq(2L),
+                any()))
+                .thenAnswer(invocation -> {
+                    RangeJobRunner.RangeTask task = invocation.getArgument(4);
+                    return (long) task.process(1, 2) + task.process(3, 4);
+                });
+
+        long deleted = refreshTokenService.deleteByExpiration(expiration);
+
+        assertEquals(3, deleted);
+        assertEquals(3, meterRegistry.get("refresh_tokens.purged").counter().count());
+        verify(refreshTokenStore, times(1)).evictExpired(expiration);
+        verify(refreshTokenStore, times(1)).deleteExpiredRange(expiration, 1, 2);
+        verify(refreshTokenStore, times(1)).deleteExpiredRange(expiration, 3, 4);
     }
 
     @Test
-    void deleteByExpiration_shouldDeleteRefreshToken() {
-        Instant expiration = Instant.now();
-        refreshTokenService.deleteByExpiration(expiration);
+    void deleteByUserId_shouldDeleteUserTokens() {
+        refreshTokenService.deleteByUserId(1L);
 
-        verify(refreshTokenRepository, times(1)).deleteRefreshTokenByExpiryDateBefore(expiration);
+        verify(refreshTokenStore, times(1)).deleteByUserId(1L);
     }
 
 }
@@ -0,0 +1,67 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ScheduledServiceTest {
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+    @Mock
+    private CardAdminService cardAdminService;
+    @Mock
+    private IdempotencyService idempotencyService;
+    @Mock
+    private CardNumberAllocator cardNumberAllocator;
+    @Mock
+    private SchedulerLeaseService schedulerLeaseService;
+
+    @InjectMocks
+    private ScheduledService scheduledService;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(scheduledService, "backfillBatchSize", 100);
+    }
+
+    @Test
+    void backfillCardColumns_shouldContinue_whenBackfillFails() {
+        when(schedulerLeaseService.runExclusively(eq(CardAdminService.BACKFILL_CARDS_JOB), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<LongSupplier>getArgument(1).getAsLong();
+                    return true;
+                });
+        when(cardAdminService.backfillCardColumns(100)).thenThrow(new DataAccessResourceFailureException("Ошибка"));
+        when(cardAdminService.reencryptLegacyCardNumbers(100)).thenThrow(new IllegalStateException("Ошибка"));
+
+        assertDoesNotThrow(() -> scheduledService.backfillCardColumns());
+
+        verify(cardAdminService, times(1)).reencryptLegacyCardNumbers(100);
+        verify(cardNumberAllocator, times(1)).warmUp(100);
+    }
+
+    @Test
+    void backfillCardColumns_shouldWarmUpAllocator_whenLeaseUnavailable() {
+        when(schedulerLeaseService.runExclusively(eq(CardAdminService.BACKFILL_CARDS_JOB), any()))
+                .thenThrow(new DataAccessResourceFailureException("Ошибка"));
+
+        assertDoesNotThrow(() -> scheduledService.backfillCardColumns());
+
+        verifyNoInteractions(cardAdminService);
+        verify(cardNumberAllocator, times(1)).warmUp(100);
+    }
+}
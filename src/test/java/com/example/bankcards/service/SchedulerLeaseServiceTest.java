@@ -0,0 +1,220 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.response.job.JobReportResponseDTO;
+import com.example.bankcards.entity.SchedulerLease;
+import com.example.bankcards.entity.listener.CardNumberHashListener;
+import com.example.bankcards.repository.SchedulerLeaseRepository;
+import com.example.bankcards.repository.projection.IdRange;
+import com.example.bankcards.util.AesGcmEncryptor;
+import com.example.bankcards.util.BlindIndexer;
+import org.jasypt.encryption.StringEncryptor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Два экземпляра сервиса с разными идентификаторами работают с одной базой данных,
+ * как реплики приложения. Тест не использует транзакцию теста, чтобы каждая операция с арендой фиксировалась.
+ */
+@DataJpaTest
+@Import({AesGcmEncryptor.class, BlindIndexer.class, CardNumberHashListener.class})
+@TestPropertySource(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "encryption.secret=secret",
+        "encryption.salt=salt",
+        "encryption.iterations=1000"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SchedulerLeaseServiceTest {
+
+    @Autowired
+    private SchedulerLeaseRepository schedulerLeaseRepository;
+    @Autowired
+    private DataSource dataSource;
+    @MockitoBean
+    private StringEncryptor stringEncryptor;
+
+    private SchedulerLeaseService first;
+    private SchedulerLeaseService second;
+
+    @AfterEach
+    public void tearDown() {
+        first.shutdown();
+        second.shutdown();
+        schedulerLeaseRepository.deleteAll();
+    }
+
+    @Test
+    void runExclusively_shouldRunJobOnSingleNode_whileLeaseHeld() {
+        first = new SchedulerLeaseService(schedulerLeaseRepository, 60000, 0, "first");
+        second = new SchedulerLeaseService(schedulerLeaseRepository, 60000, 0, "second");
+        AtomicBoolean secondExecuted = new AtomicBoolean();
+
+        boolean firstExecuted = first.runExclusively("job", () -> {
+            secondExecuted.set(second.runExclusively("job", () -> 0));
+            return 5;
+        });
+
+        assertTrue(firstExecuted);
+        assertFalse(secondExecuted.get());
+        assertTrue(second.runExclusively("job", () -> 0));
+    }
+
+    @Test
+    void runExclusively_shouldSkipJob_whenLeaseHeldForMinHold() {
+        first = new SchedulerLeaseService(schedulerLeaseRepository, 60000, 60000, "first");
+        second = new SchedulerLeaseService(schedulerLeaseRepository, 60000, 60000, "second");
+
+        assertTrue(first.runExclusively("job", () -> 1));
+        assertFalse(second.runExclusively("job", () -> 1));
+        assertFalse(first.runExclusively("job", () -> 1));
+    }
+
+    @Test
+    void runExclusively_shouldTakeOverLease_whenHolderDied() {
+        first = new SchedulerLeaseService(schedulerLeaseRepository, 60000, 0, "first");
+        second = new SchedulerLeaseService(schedulerLeaseRepository, 60000, 0, "second");
+        schedulerLeaseRepository.saveAndFlush(SchedulerLease.builder()
+                .jobName("job")
+                .owner("dead")
+                .lockedUntil(Instant.now().minusSeconds(1))
+                .build());
+
+        assertTrue(second.runExclusively("job", () -> 3));
+        assertEquals(3L, schedulerLeaseRepository.findById("job").orElseThrow().getLastRows());
+    }
+
+    @Test
+    void runExclusively_shouldRenewLease_whileJobRuns() {
+        first = new SchedulerLeaseService(schedulerLeaseRepository, 150, 0, "first");
+        second = new SchedulerLeaseService(schedulerLeaseRepository, 150, 0, "second");
+        AtomicBoolean secondExecuted = new AtomicBoolean();
+
+        first.runExclusively("job", () -> {
+            sleep(450);
+            secondExecuted.set(second.runExclusively("job", () -> 0));
+            return 0;
+        });
+
+        assertFalse(secondExecuted.get());
+    }
+
+    @Test
+    void holdsLease_shouldReturnFalse_whenLeaseTakenOver() {
+        first = new SchedulerLeaseService(schedulerLeaseRepository, 150, 0, "first");
+        second = new SchedulerLeaseService(schedulerLeaseRepository, 150, 0, "second");
+        AtomicBoolean heldAtStart = new AtomicBoolean();
+        AtomicBoolean heldAfterTakeover = new AtomicBoolean(true);
+        AtomicBoolean checkpointSaved = new AtomicBoolean(true);
+
+        first.runExclusively("job", () -> {
+            heldAtStart.set(first.holdsLease("job"));
+            SchedulerLease lease = schedulerLeaseRepository.findById("job").orElseThrow();
+            lease.setOwner("other");
+            schedulerLeaseRepository.saveAndFlush(lease);
+            sleep(200);
+            heldAfterTakeover.set(first.holdsLease("job"));
+            checkpointSaved.set(first.saveCheckpoint("job", "run", 5L));
+            return 0;
+        });
+
+        assertTrue(heldAtStart.get());
+        assertFalse(heldAfterTakeover.get());
+        assertFalse(checkpointSaved.get());
+        assertNull(schedulerLeaseRepository.findById("job").orElseThrow().getCheckpointId());
+        assertFalse(first.holdsLease("job"));
+    }
+
+    @Test
+    void rangeJob_shouldResumeFromCheckpoint_onlyForSameRun() {
+        first = new SchedulerLeaseService(schedulerLeaseRepository, 60000, 0, "first");
+        second = new SchedulerLeaseService(schedulerLeaseRepository, 60000, 0, "second");
+        RangeJobRunner firstRunner = new RangeJobRunner(first, dataSource, 1);
+        RangeJobRunner secondRunner = new RangeJobRunner(second, dataSource, 1);
+        IdRange range = new IdRange(1L, 100L);
+        List<Long> resumed = new CopyOnWriteArrayList<>();
+        List<Long> restarted = new CopyOnWriteArrayList<>();
+        try {
+            assertThrows(IllegalStateException.class, () -> first.runExclusively("job", () ->
+                    firstRunner.run("job", "2026-01-01", range, 10, (fromId, toId) -> {
+                        if (fromId == 31) {
+                            throw new IllegalStateException("Ошибка");
+                        }
+                        return 0;
+                    })));
+            assertEquals(30L, second.findCheckpoint("job", "2026-01-01"));
+            assertNull(second.findCheckpoint("job", "2026-01-02"));
+
+            second.runExclusively("job", () -> secondRunner.run("job", "2026-01-02", range, 10, (fromId, toId) -> {
+                restarted.add(fromId);
+                return 0;
+            }));
+
+            assertEquals(10, restarted.size());
+            assertEquals(1L, restarted.get(0));
+            assertNull(schedulerLeaseRepository.findById("job").orElseThrow().getCheckpointId());
+
+            schedulerLeaseRepository.saveAndFlush(lease("job", 50L, "2026-01-02"));
+            first.runExclusively("job", () -> firstRunner.run("job", "2026-01-02", range, 10, (fromId, toId) -> {
+                resumed.add(fromId);
+                return 0;
+            }));
+
+            assertEquals(5, resumed.size());
+            assertEquals(51L, resumed.get(0));
+        } finally {
+            firstRunner.shutdown();
+            secondRunner.shutdown();
+        }
+    }
+
+    @Test
+    void getReport_shouldReturnLastRun() {
+        first = new SchedulerLeaseService(schedulerLeaseRepository, 60000, 0, "first");
+        second = new SchedulerLeaseService(schedulerLeaseRepository, 60000, 0, "second");
+
+        first.runExclusively("job", () -> 7);
+
+        List<JobReportResponseDTO> report = second.getReport();
+        assertEquals(1, report.size());
+        JobReportResponseDTO job = report.get(0);
+        assertEquals("job", job.jobName());
+        assertTrue(job.owner().startsWith("first-"));
+        assertEquals(7L, job.lastRows());
+        assertNotNull(job.lastStartedAt());
+        assertNotNull(job.lastFinishedAt());
+        assertTrue(job.lastDurationMs() >= 0);
+    }
+
+    private SchedulerLease lease(String jobName, Long checkpointId, String checkpointRun) {
+        return SchedulerLease.builder()
+                .jobName(jobName)
+                .lockedUntil(Instant.EPOCH)
+                .checkpointId(checkpointId)
+                .checkpointRun(checkpointRun)
+                .build();
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.WrongParameterException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionRetryServiceTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionRetryService transactionRetryService;
+
+    @BeforeEach
+    public void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        meterRegistry = new SimpleMeterRegistry();
+        transactionRetryService = new TransactionRetryService(transactionManager, meterRegistry, 3, 0);
+    }
+
+    @Test
+    void execute_shouldRetry_whenConcurrencyFailure() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = transactionRetryService.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new CannotAcquireLockException("deadlock detected");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2, meterRegistry.counter("transactions.retries").count());
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void execute_shouldThrowException_whenAttemptsExhausted() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(CannotAcquireLockException.class, () -> transactionRetryService.execute(() -> {
+            calls.incrementAndGet();
+            throw new CannotAcquireLockException("could not serialize access");
+        }));
+
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void execute_shouldNotRetry_whenBusinessException() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(WrongParameterException.class, () -> transactionRetryService.execute(() -> {
+            calls.incrementAndGet();
+            throw new WrongParameterException("Недостаточно средств на карте списания");
+        }));
+
+        assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.WrongParameterException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransferLaneExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TransferLaneExecutor transferLaneExecutor;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        transferLaneExecutor.shutdown();
+    }
+
+    @Test
+    void execute_shouldRunInCallerThread_whenDisabled() {
+        transferLaneExecutor = new TransferLaneExecutor(false, 4, 10, meterRegistry);
+
+        String threadName = transferLaneExecutor.execute(1L, () -> Thread.currentThread().getName());
+
+        assertEquals(Thread.currentThread().getName(), threadName);
+        assertNull(meterRegistry.find("transfer.lane.queue.size").gauge());
+    }
+
+    @Test
+    void execute_shouldRouteSameCardToSameLane() {
+        transferLaneExecutor = new TransferLaneExecutor(true, 4, 10, meterRegistry);
+
+        String first = transferLaneExecutor.execute(5L, () -> Thread.currentThread().getName());
+        String second = transferLaneExecutor.execute(5L, () -> Thread.currentThread().getName());
+        String other = transferLaneExecutor.execute(6L, () -> Thread.currentThread().getName());
+
+        assertEquals("transfer-lane-1", first);
+        assertEquals(first, second);
+        assertEquals("transfer-lane-2", other);
+        assertEquals(4, meterRegistry.find("transfer.lane.queue.size").gauges().size());
+    }
+
+    @Test
+    void execute_shouldRethrowTaskException() {
+        transferLaneExecutor = new TransferLaneExecutor(true, 2, 10, meterRegistry);
+
+        WrongParameterException exception = assertThrows(WrongParameterException.class,
+                () -> transferLaneExecutor.execute(1L, () -> {
+                    throw new WrongParameterException("Недостаточно средств на карте списания");
+                }));
+
+        assertEquals("Недостаточно средств на карте списания", exception.getMessage());
+    }
+
+    @Test
+    void execute_shouldThrowException_whenLaneQueueFull() throws Exception {
+        transferLaneExecutor = new TransferLaneExecutor(true, 1, 1, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            clients.submit(() -> transferLaneExecutor.execute(1L, () -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            clients.submit(() -> transferLaneExecutor.execute(1L, () -> null));
+            while (meterRegistry.get("transfer.lane.queue.size").gauge().value() < 1) {
+                Thread.onSpinWait();
+            }
+
+            assertThrows(RejectedExecutionException.class, () -> transferLaneExecutor.execute(1L, () -> null));
+        } finally {
+            release.countDown();
+            clients.shutdown();
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.request.TotalMode;
 import com.example.bankcards.dto.response.PagedResponseDTO;
 import com.example.bankcards.dto.response.user.UserResponseDTO;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.repository.TableStatisticsRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.AccessTokenCache;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentMatchers;
@@ -15,6 +18,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.List;
@@ -28,6 +32,14 @@ public class UserApiServiceTest {
 
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private UserCache userCache;
+    @Mock
+    private AccessTokenCache accessTokenCache;
+    @Mock
+    private RefreshTokenService refreshTokenService;
+    @Mock
+    private TableStatisticsRepository tableStatisticsRepository;
 
     @InjectMocks
     private UserApiService userApiService;
@@ -61,6 +73,9 @@ public class UserApiServiceTest {
         userApiService.deleteUser(1L);
 
         verify(userRepository, times(1)).deleteById(1L);
+        verify(userCache, times(1)).evict(1L);
+        verify(accessTokenCache, times(1)).revokeUser(1L);
+        verify(refreshTokenService, times(1)).deleteByUserId(1L);
     }
 
     @Test
@@ -78,7 +93,7 @@ public class UserApiServiceTest {
 
         when(userRepository.findAll(ArgumentMatchers.<Specification<User>>any(), eq(expectedPageable))).thenReturn(users);
 
-        PagedResponseDTO<UserResponseDTO> responseDTO = userApiService.findAllUsers(page, size, null, null, null);
+        PagedResponseDTO<UserResponseDTO> responseDTO = userApiService.findAllUsers(page, size, null, null, null, null);
 
         assertEquals(1, responseDTO.totalElements());
         assertEquals("test", responseDTO.content().get(0).login());
@@ -92,11 +107,45 @@ public class UserApiServiceTest {
         when(userRepository.findAll(ArgumentMatchers.<Specification<User>>any(), eq(defaultPageable)))
                 .thenReturn(new PageImpl<>(List.of(), defaultPageable, 0));
 
-        userApiService.findAllUsers(0, 100, null, null, null);
+        userApiService.findAllUsers(0, 100, null, null, null, null);
 
         verify(userRepository).findAll(ArgumentMatchers.<Specification<User>>any(), eq(defaultPageable));
     }
 
+    @Test
+    void findAllUsers_shouldNotCount_whenTotalModeNone() {
+        Pageable pageable = PageRequest.of(0, 1);
+        User user = User.builder()
+                .id(1L)
+                .login("test")
+                .build();
+
+        when(userRepository.findSlice(ArgumentMatchers.<Specification<User>>any(), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(user), pageable, true));
+
+        PagedResponseDTO<UserResponseDTO> responseDTO = userApiService.findAllUsers(0, 1, TotalMode.NONE, null, null, null);
+
+        assertNull(responseDTO.totalElements());
+        assertTrue(responseDTO.hasNext());
+        verify(userRepository, never()).findAll(ArgumentMatchers.<Specification<User>>any(), any(Pageable.class));
+        verifyNoInteractions(tableStatisticsRepository);
+    }
+
+    @Test
+    void findAllUsers_shouldFallBackToCount_whenEstimateUnavailable() {
+        Pageable pageable = PageRequest.of(0, 1);
+
+        when(userRepository.findSlice(ArgumentMatchers.<Specification<User>>any(), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(), pageable, false));
+        when(tableStatisticsRepository.estimateRowCount("users")).thenReturn(Optional.empty());
+        when(userRepository.count()).thenReturn(0L);
+
+        PagedResponseDTO<UserResponseDTO> responseDTO = userApiService.findAllUsers(0, 1, TotalMode.ESTIMATE, null, null, null);
+
+        assertEquals(0L, responseDTO.totalElements());
+        assertFalse(responseDTO.hasNext());
+    }
+
 
 
 }
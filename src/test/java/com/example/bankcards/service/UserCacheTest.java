@@ -0,0 +1,104 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.UserRole;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.CustomUserDetailsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserCache userCache;
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        userCache = new UserCache(userRepository, 100, 60000, meterRegistry);
+        user = User.builder()
+                .id(1L)
+                .login("Test")
+                .role(UserRole.ROLE_USER)
+                .build();
+    }
+
+    @Test
+    void findByLogin_shouldLoadUserOnce() {
+        when(userRepository.findByLoginIgnoreCase("Test")).thenReturn(Optional.of(user));
+
+        assertEquals(user, userCache.findByLogin("Test").orElseThrow());
+        assertEquals(user, userCache.findByLogin("test").orElseThrow());
+        assertEquals(user, userCache.findById(1L).orElseThrow());
+
+        verify(userRepository, times(1)).findByLoginIgnoreCase("Test");
+        verify(userRepository, never()).findById(anyLong());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "users_by_login").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void findById_shouldNotCacheMissingUser() {
+        when(userRepository.findById(1L)).thenReturn(Optional.empty(), Optional.of(user));
+
+        assertTrue(userCache.findById(1L).isEmpty());
+        assertEquals(user, userCache.findById(1L).orElseThrow());
+    }
+
+    @Test
+    void findById_shouldReturnCopy_whenUserCached() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        User first = userCache.findById(1L).orElseThrow();
+        first.setRole(UserRole.ROLE_ADMIN);
+        User second = userCache.findById(1L).orElseThrow();
+
+        assertNotSame(user, first);
+        assertNotSame(first, second);
+        assertEquals(UserRole.ROLE_USER, second.getRole());
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void evict_shouldEvictAgainAfterCommit_whenInTransaction() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userCache.evict(1L);
+            userCache.findById(1L);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        userCache.findById(1L);
+
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void evict_shouldStopDeletedUserFromAuthenticating() {
+        CustomUserDetailsService userDetailsService = new CustomUserDetailsService(userCache);
+        when(userRepository.findByLoginIgnoreCase("test")).thenReturn(Optional.of(user), Optional.empty());
+        assertEquals("Test", userDetailsService.loadUserByUsername("test").getUsername());
+
+        userCache.evict(1L);
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("test"));
+    }
+}
@@ -10,6 +10,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -20,6 +22,8 @@ public class UserServiceTest {
 
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private UserCache userCache;
 
     @InjectMocks
     private UserService userService;
@@ -31,23 +35,54 @@ public class UserServiceTest {
                 .login("test")
                 .build();
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userCache.findById(1L)).thenReturn(Optional.of(user));
 
         User result = userService.findUserById(1L);
 
         assertNotNull(result);
         assertEquals(user.getId(), result.getId());
         assertEquals(user.getLogin(), result.getLogin());
-        verify(userRepository, times(1)).findById(1L);
+        verify(userCache, times(1)).findById(1L);
     }
 
     @Test
     void findUserById_shouldThrowException_whenUserNotFound() {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userCache.findById(1L)).thenReturn(Optional.empty());
 
         assertThrows(UserNotFoundException.class, () -> userService.findUserById(1L));
     }
 
+    @Test
+    void findUsersByIds_shouldReturnUsersById() {
+        User first = User.builder()
+                .id(1L)
+                .login("first")
+                .build();
+        User second = User.builder()
+                .id(2L)
+                .login("second")
+                .build();
+
+        when(userRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(first, second));
+
+        Map<Long, User> result = userService.findUsersByIds(List.of(1L, 2L));
+
+        assertEquals(2, result.size());
+        assertEquals("second", result.get(2L).getLogin());
+    }
+
+    @Test
+    void findUsersByIds_shouldThrowException_whenUserNotFound() {
+        User user = User.builder()
+                .id(1L)
+                .login("test")
+                .build();
+
+        when(userRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(user));
+
+        assertThrows(UserNotFoundException.class, () -> userService.findUsersByIds(List.of(1L, 2L)));
+    }
+
     @Test
     void findUserByLogin_shouldReturnUser() {
         User user = User.builder()
@@ -55,19 +90,19 @@ public class UserServiceTest {
                 .login("test")
                 .build();
 
-        when(userRepository.findByLoginIgnoreCase("test")).thenReturn(Optional.of(user));
+        when(userCache.findByLogin("test")).thenReturn(Optional.of(user));
 
         User result = userService.findUserByLogin("test");
 
         assertNotNull(result);
         assertEquals(user.getId(), result.getId());
         assertEquals(user.getLogin(), result.getLogin());
-        verify(userRepository, times(1)).findByLoginIgnoreCase("test");
+        verify(userCache, times(1)).findByLogin("test");
     }
 
     @Test
     void findUserByLogin_shouldThrowException_whenUserNotFound() {
-        when(userRepository.findByLoginIgnoreCase("test")).thenReturn(Optional.empty());
+        when(userCache.findByLogin("test")).thenReturn(Optional.empty());
 
         assertThrows(WrongParameterException.class, () -> userService.findUserByLogin("test"));
     }
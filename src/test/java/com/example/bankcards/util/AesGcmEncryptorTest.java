@@ -0,0 +1,65 @@
+package com.example.bankcards.util;
+
+import org.jasypt.encryption.StringEncryptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AesGcmEncryptorTest {
+
+    @Mock
+    private StringEncryptor legacyEncryptor;
+
+    private AesGcmEncryptor aesGcmEncryptor;
+
+    @BeforeEach
+    public void setUp() {
+        aesGcmEncryptor = new AesGcmEncryptor("secret", "salt", 1000, legacyEncryptor);
+    }
+
+    @Test
+    void encrypt_shouldBeDecryptable() {
+        String encrypted = aesGcmEncryptor.encrypt("1234567812345678");
+
+        assertTrue(encrypted.startsWith("v1:"));
+        assertEquals("1234567812345678", aesGcmEncryptor.decrypt(encrypted));
+        verify(legacyEncryptor, never()).decrypt(anyString());
+    }
+
+    @Test
+    void encrypt_shouldUseRandomIv() {
+        assertNotEquals(aesGcmEncryptor.encrypt("1234567812345678"), aesGcmEncryptor.encrypt("1234567812345678"));
+    }
+
+    @Test
+    void decrypt_shouldUseLegacyEncryptor_whenNoVersionPrefix() {
+        when(legacyEncryptor.decrypt("legacy")).thenReturn("1234567812345678");
+
+        assertEquals("1234567812345678", aesGcmEncryptor.decrypt("legacy"));
+    }
+
+    @Test
+    void decrypt_shouldThrowException_whenValueTampered() {
+        byte[] data = Base64.getDecoder().decode(aesGcmEncryptor.encrypt("1234567812345678").substring(3));
+        data[data.length - 1] ^= 1;
+
+        assertThrows(IllegalStateException.class,
+                () -> aesGcmEncryptor.decrypt("v1:" + Base64.getEncoder().encodeToString(data)));
+    }
+
+    @Test
+    void decrypt_shouldThrowException_whenKeyDiffers() {
+        String encrypted = new AesGcmEncryptor("other", "salt", 1000, legacyEncryptor).encrypt("1234567812345678");
+
+        assertThrows(IllegalStateException.class, () -> aesGcmEncryptor.decrypt(encrypted));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlindIndexerTest {
+
+    private BlindIndexer blindIndexer;
+
+    @BeforeEach
+    public void setUp() {
+        blindIndexer = new BlindIndexer("secret", "salt", 1000);
+    }
+
+    @Test
+    void hash_shouldBeDeterministic() {
+        String hash = blindIndexer.hash("1234567812345678");
+
+        assertEquals(64, hash.length());
+        assertEquals(hash, blindIndexer.hash("1234567812345678"));
+        assertNotEquals(hash, blindIndexer.hash("8765432187654321"));
+    }
+
+    @Test
+    void hash_shouldDependOnKey() {
+        assertNotEquals(blindIndexer.hash("1234567812345678"),
+                new BlindIndexer("other", "salt", 1000).hash("1234567812345678"));
+    }
+
+    @Test
+    void hash_shouldReturnNull_whenValueNull() {
+        assertNull(blindIndexer.hash(null));
+    }
+}